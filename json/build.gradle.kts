@@ -18,6 +18,24 @@ java {
     sourceCompatibility = JavaVersion.VERSION_1_8
     targetCompatibility = JavaVersion.VERSION_1_8
 }
+
+// Classes that need a newer JDK, packed into the multi-release part of the jar
+val java17 by sourceSets.creating {
+    java.srcDir("src/main/java17")
+    compileClasspath += sourceSets.main.get().output
+}
+tasks.named<JavaCompile>(java17.compileJavaTaskName) {
+    options.release.set(17)
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+tasks.jar {
+    into("META-INF/versions/17") {
+        from(java17.output)
+    }
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
 dependencies {
     implementation("org.jetbrains:annotations:24.0.1")
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads a file through an {@link AsynchronousFileChannel}, with two buffers: while one is being consumed, the
+ * next chunk of the file is read into the other.
+ */
+final class AsyncFileInputStream extends InputStream {
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final CompletionHandler<Integer, CompletableFuture<Integer>> HANDLER = new CompletionHandler<Integer, CompletableFuture<Integer>>() {
+		@Override
+		public void completed(Integer result, CompletableFuture<Integer> future) {
+			future.complete(result);
+		}
+
+		@Override
+		public void failed(Throwable exc, CompletableFuture<Integer> future) {
+			future.completeExceptionally(exc);
+		}
+	};
+
+	private final AsynchronousFileChannel channel;
+	private ByteBuffer current;
+	private ByteBuffer next;
+	/* The read into next, which is always in flight until the end of the file is reached. */
+	private CompletableFuture<Integer> pending;
+	private long position;
+	private boolean eof;
+
+	/**
+	 * Opens {@code path}, and starts reading its first chunk.
+	 */
+	AsyncFileInputStream(Path path) throws IOException {
+		this.channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+		this.current = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.current.flip();
+		this.next = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.pending = readInto(next);
+	}
+
+	/**
+	 * Returns a future that completes once the first chunk has been read, successfully or not.
+	 */
+	CompletableFuture<?> ready() {
+		return pending;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!current.hasRemaining() && !advance()) {
+			return -1;
+		}
+		return current.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		if (!current.hasRemaining() && !advance()) {
+			return -1;
+		}
+
+		int read = Math.min(length, current.remaining());
+		current.get(bytes, offset, read);
+		return read;
+	}
+
+	@Override
+	public int available() {
+		return current.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Swaps in the chunk that has been read in the background, and starts reading the one after it.
+	 */
+	private boolean advance() throws IOException {
+		if (eof) {
+			return false;
+		}
+
+		int read = await(pending);
+		if (read == -1) {
+			eof = true;
+			return false;
+		}
+		position += read;
+
+		ByteBuffer filled = next;
+		filled.flip();
+		next = current;
+		current = filled;
+		pending = readInto(next);
+		return true;
+	}
+
+	private CompletableFuture<Integer> readInto(ByteBuffer buffer) {
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		buffer.clear();
+		channel.read(buffer, position, future, HANDLER);
+		return future;
+	}
+
+	/**
+	 * Waits for an I/O operation, and rethrows its failure as it was thrown.
+	 */
+	static <T> T await(CompletableFuture<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes a file through an {@link AsynchronousFileChannel}, with two buffers: while one is being written to the
+ * file, the other is filled. Closing the stream only starts the last write; {@link #closed()} completes once it
+ * is done and the channel is closed.
+ */
+final class AsyncFileOutputStream extends OutputStream {
+	private final AsynchronousFileChannel channel;
+	private ByteBuffer current;
+	private ByteBuffer spare;
+	/* The write of spare, if one is in flight. */
+	private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+	private long position;
+	private CompletableFuture<Void> closed;
+
+	/**
+	 * Creates {@code path}, or truncates it if it exists.
+	 */
+	AsyncFileOutputStream(Path path) throws IOException {
+		this.channel = AsynchronousFileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.current = ByteBuffer.allocateDirect(AsyncFileInputStream.BUFFER_SIZE);
+		this.spare = ByteBuffer.allocateDirect(AsyncFileInputStream.BUFFER_SIZE);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		current.put((byte) b);
+		if (!current.hasRemaining()) {
+			swap();
+		}
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		ensureOpen();
+		while (length > 0) {
+			int count = Math.min(length, current.remaining());
+			current.put(bytes, offset, count);
+			offset += count;
+			length -= count;
+			if (!current.hasRemaining()) {
+				swap();
+			}
+		}
+	}
+
+	/**
+	 * Writes everything written so far to the file, and waits until it is done.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		if (current.position() > 0) {
+			swap();
+		}
+		AsyncFileInputStream.await(pending);
+	}
+
+	/**
+	 * Starts writing whatever is left, and returns without waiting for it.
+	 */
+	@Override
+	public void close() {
+		if (closed != null) {
+			return;
+		}
+
+		current.flip();
+		ByteBuffer last = current;
+		long lastPosition = position;
+		closed = pending
+				.thenCompose(ignored -> writeFully(last, lastPosition))
+				.whenComplete((ignored, e) -> {
+					try {
+						channel.close();
+					} catch (IOException ignoredClose) {
+						// The write's own outcome is what matters
+					}
+				});
+	}
+
+	/**
+	 * Returns a future that completes once the stream has been closed and everything has been written.
+	 *
+	 * @throws IllegalStateException if the stream has not been closed yet.
+	 */
+	CompletableFuture<Void> closed() {
+		if (closed == null) {
+			throw new IllegalStateException("The stream has not been closed");
+		}
+		return closed;
+	}
+
+	/**
+	 * Starts writing the full buffer, after waiting for the last write so that its buffer can be filled next.
+	 */
+	private void swap() throws IOException {
+		AsyncFileInputStream.await(pending);
+		current.flip();
+		long start = position;
+		position += current.remaining();
+		pending = writeFully(current, start);
+
+		ByteBuffer filled = current;
+		current = spare;
+		spare = filled;
+		current.clear();
+	}
+
+	private CompletableFuture<Void> writeFully(ByteBuffer buffer, long start) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		channel.write(buffer, start, future, new CompletionHandler<Integer, CompletableFuture<Void>>() {
+			private long written = start;
+
+			@Override
+			public void completed(Integer result, CompletableFuture<Void> future) {
+				written += result;
+				if (buffer.hasRemaining()) {
+					channel.write(buffer, written, future, this);
+				} else {
+					future.complete(null);
+				}
+			}
+
+			@Override
+			public void failed(Throwable exc, CompletableFuture<Void> future) {
+				future.completeExceptionally(exc);
+			}
+		});
+		return future;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed != null) {
+			throw new IOException("Stream closed");
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.util.Arrays;
+
+/**
+ * Encodes and decodes the standard Base64 alphabet between bytes and chars, for binary values. Decoding is
+ * incremental, so a value can be fed in arbitrary pieces. Like {@link java.util.Base64#getDecoder()}, padding
+ * is accepted but not required; unlike it, line breaks are skipped, so long values may be wrapped.
+ */
+final class Base64Codec {
+	private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+	private static final byte[] VALUES = new byte[128];
+
+	static {
+		Arrays.fill(VALUES, (byte) -1);
+		for (int i = 0; i < ALPHABET.length; i++) {
+			VALUES[ALPHABET[i]] = (byte) i;
+		}
+	}
+
+	private Base64Codec() {
+	}
+
+	/**
+	 * Encodes {@code length} bytes of {@code bytes} into {@code chars}, which needs room for
+	 * {@code (length + 2) / 3 * 4} chars. Only the last piece of a value may have a length that is not a
+	 * multiple of three, as it is padded.
+	 *
+	 * @return the number of chars written.
+	 */
+	static int encode(byte[] bytes, int offset, int length, char[] chars) {
+		int n = 0;
+		int end = offset + length;
+		int i = offset;
+		for (; i + 2 < end; i += 3) {
+			int bits = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | bytes[i + 2] & 0xFF;
+			chars[n++] = ALPHABET[bits >>> 18];
+			chars[n++] = ALPHABET[bits >>> 12 & 0x3F];
+			chars[n++] = ALPHABET[bits >>> 6 & 0x3F];
+			chars[n++] = ALPHABET[bits & 0x3F];
+		}
+
+		if (i < end) {
+			int bits = (bytes[i] & 0xFF) << 16 | (i + 1 < end ? (bytes[i + 1] & 0xFF) << 8 : 0);
+			chars[n++] = ALPHABET[bits >>> 18];
+			chars[n++] = ALPHABET[bits >>> 12 & 0x3F];
+			chars[n++] = i + 1 < end ? ALPHABET[bits >>> 6 & 0x3F] : '=';
+			chars[n++] = '=';
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of bytes {@code chars[offset, offset + length)} decodes to if it is valid and has no
+	 * line breaks. Otherwise, it is still enough room for whatever a {@link Decoder} writes before it fails.
+	 */
+	static int decodedLength(char[] chars, int offset, int length) {
+		int padding = 0;
+		while (padding < 2 && padding < length && chars[offset + length - 1 - padding] == '=') {
+			padding++;
+		}
+		int significant = length - padding;
+		return significant / 4 * 3 + Math.max(significant % 4 - 1, 0);
+	}
+
+	/**
+	 * The state of decoding one value.
+	 */
+	static final class Decoder {
+		private int bits;
+		private int count;
+		private int padding;
+
+		/**
+		 * Decodes {@code length} chars of {@code chars} into {@code bytes}, which needs room for
+		 * {@code length / 4 * 3 + 2} bytes.
+		 *
+		 * @return the number of bytes written.
+		 * @throws IllegalArgumentException if the chars are not valid Base64.
+		 */
+		int decode(char[] chars, int offset, int length, byte[] bytes, int byteOffset) {
+			int n = byteOffset;
+			int bits = this.bits;
+			int count = this.count;
+			for (int i = offset, end = offset + length; i < end; i++) {
+				char c = chars[i];
+				int value = c < 128 ? VALUES[c] : -1;
+				if (value >= 0 && padding == 0) {
+					bits = bits << 6 | value;
+					if (++count == 4) {
+						bytes[n++] = (byte) (bits >> 16);
+						bytes[n++] = (byte) (bits >> 8);
+						bytes[n++] = (byte) bits;
+						bits = 0;
+						count = 0;
+					}
+				} else if (c == '=' && count >= 2 && count + padding < 4) {
+					padding++;
+				} else if (c != '\n' && c != '\r') {
+					this.bits = bits;
+					this.count = count;
+					throw new IllegalArgumentException(c == '=' || padding > 0 ? "Invalid Base64 padding" : "Illegal Base64 character 0x" + Integer.toHexString(c));
+				}
+			}
+			this.bits = bits;
+			this.count = count;
+			return n - byteOffset;
+		}
+
+		/**
+		 * Writes out the last bytes of the value, which needs room for two bytes.
+		 *
+		 * @return the number of bytes written.
+		 * @throws IllegalArgumentException if the value ended in the middle of a byte.
+		 */
+		int finish(byte[] bytes, int byteOffset) {
+			if (count == 1 || padding > 0 && count + padding != 4) {
+				throw new IllegalArgumentException("Base64 value ends in the middle of a byte");
+			} else if (count == 2) {
+				bytes[byteOffset] = (byte) (bits >> 4);
+				return 1;
+			} else if (count == 3) {
+				bytes[byteOffset] = (byte) (bits >> 10);
+				bytes[byteOffset + 1] = (byte) (bits >> 2);
+				return 2;
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+/**
+ * Supplies the read buffers of {@link JsonReader}s, so that short-lived readers can reuse large buffers
+ * instead of allocating a fresh array for every document.
+ *
+ * <p>A reader acquires its buffer when it first reads input, acquires a larger one if a single token
+ * outgrows it, and releases whatever it holds when it is {@linkplain JsonReader#close() closed}.
+ *
+ * @see JsonReader#setBufferPool(BufferPool)
+ */
+public interface BufferPool {
+	/**
+	 * Returns a buffer of at least {@code minimumSize} chars. Its contents do not matter.
+	 */
+	char[] acquire(int minimumSize);
+
+	/**
+	 * Hands back a buffer that was acquired from this pool. The caller must not use it afterwards.
+	 */
+	void release(char[] buffer);
+
+	/**
+	 * Returns a pool that keeps one buffer per thread, which suits readers that are created, used and
+	 * closed on the same thread. Buffers larger than 256K chars are never kept.
+	 */
+	static BufferPool threadLocal() {
+		return ThreadLocalBufferPool.INSTANCE;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+/**
+ * Finds the next char of interest in a range of a buffer, for the scanning loops of {@link JsonReader}.
+ *
+ * <p>This is the scalar implementation, which checks one char at a time. On Java 17 and later, when the
+ * {@code jdk.incubator.vector} module is present (for example via {@code --add-modules jdk.incubator.vector}),
+ * {@link #INSTANCE} is a subclass from the multi-release part of the jar that checks a whole SIMD register's
+ * worth of chars at once.
+ */
+class CharScanner {
+	static final CharScanner INSTANCE = load();
+
+	/* The chars that end a run of plain string contents, indexed up to the largest of them. */
+	private static final boolean[] STRING_STOP = new boolean['\\' + 1];
+	/* The chars skipValueFast() has to stop at inside an object or array. */
+	private static final boolean[] STRUCTURAL = new boolean['}' + 1];
+	static {
+		for (char c : "\"'\\\n".toCharArray()) {
+			STRING_STOP[c] = true;
+		}
+		for (char c : "\n\"'/[]{}".toCharArray()) {
+			STRUCTURAL[c] = true;
+		}
+	}
+
+	private static CharScanner load() {
+		try {
+			return (CharScanner) Class.forName("org.quiltmc.parsers.json.VectorCharScanner").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new CharScanner(); // Java 8 to 16, or the vector module isn't present
+		}
+	}
+
+	/**
+	 * Returns the index of the first quote, backslash or newline in {@code chars[p, l)}, or {@code l} if there is none.
+	 */
+	int skipStringContent(char[] chars, int p, int l) {
+		boolean[] stop = STRING_STOP;
+		for (; p < l; p++) {
+			char c = chars[p];
+			if (c < stop.length && stop[c]) {
+				return p;
+			}
+		}
+		return l;
+	}
+
+	/**
+	 * Returns the index of the first char in {@code chars[p, l)} that isn't a space, tab or carriage return,
+	 * or {@code l} if there is none. Newlines are not skipped, so that the caller can count them.
+	 */
+	int skipWhitespace(char[] chars, int p, int l) {
+		for (; p < l; p++) {
+			char c = chars[p];
+			if (c != ' ' && c != '\t' && c != '\r') {
+				return p;
+			}
+		}
+		return l;
+	}
+
+	/**
+	 * Returns the index of the first bracket, quote, slash or newline in {@code chars[p, l)}, or {@code l} if
+	 * there is none.
+	 */
+	int skipToStructural(char[] chars, int p, int l) {
+		boolean[] structural = STRUCTURAL;
+		for (; p < l; p++) {
+			char c = chars[p];
+			if (c < structural.length && structural[c]) {
+				return p;
+			}
+		}
+		return l;
+	}
+}
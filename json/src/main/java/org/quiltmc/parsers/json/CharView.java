@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+/**
+ * A reusable window over a range of a char array, handed out by {@link JsonReader}'s zero-copy accessors.
+ * The window is only meaningful until the reader that owns it is used again.
+ *
+ * <p>Views are equal to other views over the same chars, and hash like the {@code String} of those chars. They
+ * are never equal to a {@code String}, as that could not be symmetric; use
+ * {@link String#contentEquals(CharSequence)} for that instead.
+ */
+final class CharView implements CharSequence {
+	private char[] chars;
+	private int offset;
+	private int length;
+
+	CharView reset(char[] chars, int offset, int length) {
+		this.chars = chars;
+		this.offset = offset;
+		this.length = length;
+		return this;
+	}
+
+	char[] array() {
+		return chars;
+	}
+
+	int offset() {
+		return offset;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+		return chars[offset + index];
+	}
+
+	/**
+	 * Returns a copy of the given range as a {@code String}, which stays valid after the reader moves on.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + length);
+		}
+		return new String(chars, offset + start, end - start);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof CharView)) {
+			return false;
+		}
+
+		CharView other = (CharView) obj;
+		if (other.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (chars[offset + i] != other.chars[other.offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return new String(chars, offset, length);
+	}
+}
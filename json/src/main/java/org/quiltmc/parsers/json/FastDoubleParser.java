@@ -0,0 +1,301 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.math.BigInteger;
+
+/**
+ * Decodes decimal number literals into correctly rounded doubles and floats, straight out of a char array.
+ *
+ * <p>Literals whose significand fits in a long are converted with Clinger's fast path when the result is
+ * exact, and with the Eisel-Lemire algorithm otherwise. The rare literals that neither can round with
+ * certainty (more than 19 significant digits, or an ambiguous 128-bit product) are handed to the JDK's
+ * exact parser instead.
+ *
+ * <p>See Daniel Lemire, "Number Parsing at a Gigabyte per Second" (Software: Practice and Experience, 2021).
+ *
+ * <p>Instances hold the scratch state of the literal being parsed, so each one must only be used by one thread.
+ */
+final class FastDoubleParser {
+	private static final int MAX_SIGNIFICANT_DIGITS = 19;
+	private static final int SMALLEST_POWER_OF_FIVE = -342;
+	private static final int LARGEST_POWER_OF_FIVE = 308;
+
+	private static final double[] DOUBLE_POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	private static final float[] FLOAT_POWERS_OF_TEN = {
+			1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+	};
+
+	private static final int DOUBLE_EXPLICIT_BITS = 52;
+	private static final int FLOAT_EXPLICIT_BITS = 23;
+
+	/*
+	 * The literal currently being parsed, split into its sign, up to 19 significant digits, and a power of ten.
+	 * Nineteen digits may not fit in a signed long, so the significand is always treated as unsigned.
+	 */
+	private boolean negative;
+	private long significand;
+	private long exponent;
+
+	/**
+	 * Parses a decimal literal as accepted by {@link JsonReader}, with an optional sign, fraction and exponent.
+	 */
+	double parseDouble(char[] chars, int offset, int length) {
+		if (parse(chars, offset, length)) {
+			if (significand == 0) {
+				return negative ? -0.0 : 0.0;
+			}
+
+			if (exponent >= -22 && exponent <= 22 && Long.compareUnsigned(significand, 1L << 53) <= 0) {
+				// Clinger's fast path: both operands are exact, so IEEE-754 rounds the result correctly
+				double value = (double) significand;
+				value = exponent < 0 ? value / DOUBLE_POWERS_OF_TEN[(int) -exponent] : value * DOUBLE_POWERS_OF_TEN[(int) exponent];
+				return negative ? -value : value;
+			}
+
+			long bits = eiselLemire(exponent, significand, DOUBLE_EXPLICIT_BITS, -1023, 0x7FF, -4, 23);
+			if (bits != -1) {
+				return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+			}
+		}
+
+		return Double.parseDouble(new String(chars, offset, length));
+	}
+
+	/**
+	 * Parses a decimal literal as accepted by {@link JsonReader}, rounding directly to the nearest float.
+	 */
+	float parseFloat(char[] chars, int offset, int length) {
+		if (parse(chars, offset, length)) {
+			if (significand == 0) {
+				return negative ? -0.0f : 0.0f;
+			}
+
+			if (exponent >= -10 && exponent <= 10 && Long.compareUnsigned(significand, 1L << 24) <= 0) {
+				float value = (float) significand;
+				value = exponent < 0 ? value / FLOAT_POWERS_OF_TEN[(int) -exponent] : value * FLOAT_POWERS_OF_TEN[(int) exponent];
+				return negative ? -value : value;
+			}
+
+			long bits = eiselLemire(exponent, significand, FLOAT_EXPLICIT_BITS, -127, 0xFF, -17, 10);
+			if (bits != -1) {
+				return Float.intBitsToFloat(negative ? (int) bits | Integer.MIN_VALUE : (int) bits);
+			}
+		}
+
+		return Float.parseFloat(new String(chars, offset, length));
+	}
+
+	/**
+	 * Computes the bits of {@code w * 10^q} rounded to the nearest binary floating point value with the given
+	 * layout, leaving the sign bit clear.
+	 *
+	 * @return the raw bits of the value, or -1 if the result cannot be determined without exact arithmetic.
+	 */
+	private static long eiselLemire(long q, long w, int explicitBits, int minimumExponent, int infinitePower,
+			int minRoundToEven, int maxRoundToEven) {
+		if (q < SMALLEST_POWER_OF_FIVE) {
+			return 0;
+		}
+		if (q > LARGEST_POWER_OF_FIVE) {
+			return (long) infinitePower << explicitBits;
+		}
+
+		int lz = Long.numberOfLeadingZeros(w);
+		w <<= lz;
+
+		// Multiply by the 128-bit truncated power of five, only looking at the lower half when the upper one is ambiguous
+		int index = 2 * (int) (q - SMALLEST_POWER_OF_FIVE);
+		long[] powers = PowersOfFive.TABLE;
+		long high = unsignedMultiplyHigh(w, powers[index]);
+		long low = w * powers[index];
+		long precisionMask = -1L >>> (explicitBits + 3);
+		if ((high & precisionMask) == precisionMask) {
+			long secondHigh = unsignedMultiplyHigh(w, powers[index + 1]);
+			low += secondHigh;
+			if (Long.compareUnsigned(secondHigh, low) > 0) {
+				high++;
+			}
+		}
+
+		if (low == -1L && (q < -27 || q > 55)) {
+			return -1; // the truncated product might round differently, defer to exact arithmetic
+		}
+
+		int upperBit = (int) (high >>> 63);
+		int shift = upperBit + 64 - explicitBits - 3;
+		long mantissa = high >>> shift;
+		long power2 = (((152170 + 65536) * q) >> 16) + 63 + upperBit - lz - minimumExponent;
+
+		if (power2 <= 0) {
+			// Subnormal
+			if (-power2 + 1 >= 64) {
+				return 0;
+			}
+			mantissa >>>= -power2 + 1;
+			mantissa += mantissa & 1;
+			mantissa >>>= 1;
+			power2 = mantissa < 1L << explicitBits ? 0 : 1;
+			return (power2 << explicitBits) | (mantissa & ((1L << explicitBits) - 1));
+		}
+
+		// Exactly halfway between two values: round to even rather than up
+		if (Long.compareUnsigned(low, 1) <= 0 && q >= minRoundToEven && q <= maxRoundToEven && (mantissa & 3) == 1
+				&& (mantissa << shift) == high) {
+			mantissa &= ~1L;
+		}
+
+		mantissa += mantissa & 1;
+		mantissa >>>= 1;
+		if (mantissa >= 2L << explicitBits) {
+			mantissa = 1L << explicitBits;
+			power2++;
+		}
+		mantissa &= ~(1L << explicitBits);
+
+		if (power2 >= infinitePower) {
+			return (long) infinitePower << explicitBits;
+		}
+		return (power2 << explicitBits) | mantissa;
+	}
+
+	/**
+	 * Returns the upper 64 bits of the unsigned 128-bit product of {@code a} and {@code b}.
+	 */
+	private static long unsignedMultiplyHigh(long a, long b) {
+		long aLow = a & 0xFFFFFFFFL;
+		long aHigh = a >>> 32;
+		long bLow = b & 0xFFFFFFFFL;
+		long bHigh = b >>> 32;
+
+		long lowLow = aLow * bLow;
+		long highLow = aHigh * bLow;
+		long lowHigh = aLow * bHigh;
+		long cross = (lowLow >>> 32) + (highLow & 0xFFFFFFFFL) + lowHigh;
+		return aHigh * bHigh + (highLow >>> 32) + (cross >>> 32);
+	}
+
+	/**
+	 * Splits a literal into {@link #negative}, {@link #significand} and {@link #exponent}.
+	 *
+	 * @return false if the literal has too many significant digits to be represented exactly.
+	 */
+	private boolean parse(char[] chars, int offset, int length) {
+		negative = false;
+		int i = offset;
+		int end = offset + length;
+
+		char c = chars[i];
+		if (c == '-') {
+			negative = true;
+			i++;
+		} else if (c == '+') {
+			i++;
+		}
+
+		int digits = 0;
+		long w = 0;
+		long exp = 0;
+		for (; i < end && (c = chars[i]) >= '0' && c <= '9'; i++) {
+			if (digits == 0 && c == '0') {
+				continue; // leading zero
+			}
+			if (++digits > MAX_SIGNIFICANT_DIGITS) {
+				return false;
+			}
+			w = w * 10 + (c - '0');
+		}
+
+		if (i < end && chars[i] == '.') {
+			for (i++; i < end && (c = chars[i]) >= '0' && c <= '9'; i++) {
+				exp--;
+				if (digits == 0 && c == '0') {
+					continue;
+				}
+				if (++digits > MAX_SIGNIFICANT_DIGITS) {
+					return false;
+				}
+				w = w * 10 + (c - '0');
+			}
+		}
+
+		if (i < end && ((c = chars[i]) == 'e' || c == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && ((c = chars[i]) == '-' || c == '+')) {
+				negativeExponent = c == '-';
+				i++;
+			}
+
+			long explicitExponent = 0;
+			for (; i < end && (c = chars[i]) >= '0' && c <= '9'; i++) {
+				// Anything this large is already out of range, so there's no need to keep counting
+				if (explicitExponent < 100_000) {
+					explicitExponent = explicitExponent * 10 + (c - '0');
+				}
+			}
+			exp += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+
+		if (i != end) {
+			return false;
+		}
+
+		significand = w;
+		exponent = exp;
+		return true;
+	}
+
+	/**
+	 * Holds the 128-bit truncated powers of five, from 5^-342 to 5^308, as pairs of high and low words.
+	 * These are computed once on first use, rather than being shipped as a table of literals.
+	 */
+	private static final class PowersOfFive {
+		static final long[] TABLE = new long[2 * (LARGEST_POWER_OF_FIVE - SMALLEST_POWER_OF_FIVE + 1)];
+
+		static {
+			BigInteger five = BigInteger.valueOf(5);
+			BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+			BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+			for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; q++) {
+				BigInteger value;
+				if (q < 0) {
+					BigInteger power = five.pow(-q);
+					int z = power.bitLength();
+					int b = q >= -27 ? z + 127 : 2 * z + 128;
+					value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+					while (value.compareTo(two128) >= 0) {
+						value = value.shiftRight(1);
+					}
+				} else {
+					value = five.pow(q);
+					// Keep only the 128 most significant bits, with the top bit set
+					int bits = value.bitLength();
+					value = bits < 128 ? value.shiftLeft(128 - bits) : value.shiftRight(bits - 128);
+				}
+
+				int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+				TABLE[index] = value.shiftRight(64).longValue();
+				TABLE[index + 1] = value.and(mask).longValue();
+			}
+		}
+	}
+}
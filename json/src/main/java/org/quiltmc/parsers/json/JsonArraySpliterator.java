@@ -0,0 +1,376 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the elements of a document that is one large top-level array, such as a dump of
+ * {@code [ {...}, {...}, ... ]}, on several threads at once:
+ *
+ * <pre>{@code
+ * List<Entry> entries = StreamSupport.stream(JsonArraySpliterator.of(path, JsonFormat.JSON, Entry::decode), true)
+ *         .collect(Collectors.toList());
+ * }</pre>
+ *
+ * <p>The first time the spliterator is split, the document is scanned once for its structure alone, keeping
+ * track of strings and, where the format allows them, comments, to find the commas between top-level elements
+ * roughly every {@value #SPLIT_SIZE} bytes. Splitting then hands off runs of elements between those commas, and
+ * each run is decoded with its own {@link JsonReader}. A spliterator that is never split decodes the whole
+ * document with a single reader, without scanning it first.
+ *
+ * <p>The same documents are accepted as when the array is read with one reader, but line numbers in error
+ * messages are counted from the start of the run they occur in. {@link IOException}s are
+ * rethrown as {@link UncheckedIOException}s.
+ *
+ * @param <T> the type of the decoded elements.
+ */
+public final class JsonArraySpliterator<T> implements Spliterator<T> {
+	private static final int SPLIT_SIZE = 256 * 1024;
+	/** The largest region of a file that is mapped at once. */
+	private static final int MAPPING_WINDOW_SIZE = 1 << 30;
+
+	private final Source source;
+	private final JsonDecoder<? extends T> decoder;
+	/* The runs of elements this covers, once the document has been scanned. */
+	private int from;
+	private int to;
+	private @Nullable JsonReader reader;
+	private boolean finished;
+
+	private JsonArraySpliterator(Source source, JsonDecoder<? extends T> decoder, int from, int to) {
+		this.source = source;
+		this.decoder = decoder;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Returns a spliterator over the elements of the array in the remaining UTF-8 encoded bytes of {@code in}.
+	 * The buffer's own position is left untouched, and it must not be modified while the elements are decoded.
+	 */
+	public static <T> JsonArraySpliterator<T> of(ByteBuffer in, JsonFormat format, JsonDecoder<? extends T> decoder) {
+		Objects.requireNonNull(in, "Input buffer cannot be null");
+		return create(new ByteBuffer[] { in.slice() }, format, decoder);
+	}
+
+	/**
+	 * Returns a spliterator over the elements of the array in a UTF-8 encoded file, which is mapped into memory.
+	 */
+	public static <T> JsonArraySpliterator<T> of(Path in, JsonFormat format, JsonDecoder<? extends T> decoder) throws IOException {
+		Objects.requireNonNull(in, "Path cannot be null");
+		// The mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer[] windows = new ByteBuffer[(int) ((size + MAPPING_WINDOW_SIZE - 1) / MAPPING_WINDOW_SIZE)];
+			for (int i = 0; i < windows.length; i++) {
+				long start = (long) i * MAPPING_WINDOW_SIZE;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAPPING_WINDOW_SIZE, size - start));
+			}
+			return create(windows, format, decoder);
+		}
+	}
+
+	private static <T> JsonArraySpliterator<T> create(ByteBuffer[] windows, JsonFormat format, JsonDecoder<? extends T> decoder) {
+		Objects.requireNonNull(format, "Format cannot be null");
+		Objects.requireNonNull(decoder, "Decoder cannot be null");
+		return new JsonArraySpliterator<>(new Source(windows, format), decoder, 0, -1);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		if (finished) {
+			return false;
+		}
+
+		try {
+			JsonReader reader = this.reader;
+			if (reader == null) {
+				reader = this.reader = open();
+				reader.beginArray();
+			}
+
+			if (reader.hasNext()) {
+				action.accept(decoder.decode(reader));
+				return true;
+			}
+
+			reader.endArray();
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new IllegalStateException("Expected END_DOCUMENT but was " + reader.peek() + reader.locationString());
+			}
+			finished = true;
+			this.reader = null;
+			JsonReaderPool.release(reader);
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Hands off the first half of the runs of elements this covers, unless it has already started decoding them.
+	 */
+	@Override
+	public @Nullable Spliterator<T> trySplit() {
+		if (reader != null || finished) {
+			return null;
+		}
+		if (to == -1) {
+			to = source.scan().length - 1;
+		}
+
+		int middle = (from + to) >>> 1;
+		if (middle == from) {
+			return null;
+		}
+		JsonArraySpliterator<T> prefix = new JsonArraySpliterator<>(source, decoder, from, middle);
+		from = middle;
+		return prefix;
+	}
+
+	/**
+	 * Returns the number of bytes left to decode, which is proportional to the number of elements at best.
+	 */
+	@Override
+	public long estimateSize() {
+		if (finished) {
+			return 0;
+		} else if (to == -1) {
+			return source.size;
+		}
+		return source.end(to) - source.start(from);
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED;
+	}
+
+	/**
+	 * Returns a reader of the runs this covers, made to look like a whole array of their elements.
+	 */
+	private JsonReader open() {
+		if (to == -1) {
+			return JsonReaderPool.borrow(new Utf8Reader(source.slice(0, source.size, false, false)), source.format);
+		}
+		boolean first = from == 0;
+		boolean last = to == source.boundaries.length - 1;
+		ByteBuffer[] pieces = source.slice(source.start(from), source.end(to), !first, !last);
+		return JsonReaderPool.borrow(new Utf8Reader(pieces), source.format);
+	}
+
+	/**
+	 * The document, and where it may be cut, which is shared by a spliterator and everything split off it.
+	 */
+	private static final class Source {
+		private static final int NONE = 0;
+		private static final int LINE_COMMENT = 1;
+		private static final int BLOCK_COMMENT = 2;
+		private static final int SCAN_CHUNK_SIZE = 8192;
+
+		final ByteBuffer[] windows;
+		final JsonFormat format;
+		final long size;
+		/*
+		 * The start of the document, the top-level commas that runs begin after, and the end of the document.
+		 * Only set by the spliterator that is split first, before any others exist.
+		 */
+		long[] boundaries;
+
+		Source(ByteBuffer[] windows, JsonFormat format) {
+			this.windows = windows;
+			this.format = format;
+			long size = 0;
+			for (ByteBuffer window : windows) {
+				size += window.remaining();
+			}
+			this.size = size;
+		}
+
+		/**
+		 * Returns the position at which the run at {@code index} starts.
+		 */
+		long start(int index) {
+			return index == 0 ? 0 : boundaries[index] + 1;
+		}
+
+		/**
+		 * Returns the position just after the end of the run before {@code index}.
+		 */
+		long end(int index) {
+			return boundaries[index];
+		}
+
+		long[] scan() {
+			long[] found = new long[16];
+			int count = 1;
+			if (size == 0) {
+				return boundaries = new long[] { 0, 0 };
+			}
+
+			boolean comments = format != JsonFormat.JSON;
+			boolean singleQuotes = format == JsonFormat.JSON5;
+			int depth = 0;
+			byte quote = 0;
+			boolean escaped = false;
+			int comment = NONE;
+			boolean slash = false;
+			boolean star = false;
+			long last = 0;
+			long candidate = -1;
+			byte previous = 0;
+
+			// Scanning a copy is much faster than reading a mapped buffer a byte at a time
+			byte[] chunk = new byte[SCAN_CHUNK_SIZE];
+			long offset = 0;
+			scan:
+			for (ByteBuffer window : windows) {
+				ByteBuffer remaining = window.duplicate();
+				while (remaining.hasRemaining()) {
+					int length = Math.min(chunk.length, remaining.remaining());
+					remaining.get(chunk, 0, length);
+					for (int i = 0; i < length; i++) {
+						byte c = chunk[i];
+						if (quote != 0) {
+							if (escaped) {
+								escaped = false;
+								continue;
+							}
+							// Skip plain string content in a tight loop, as it tends to be most of a document
+							while (c != quote && c != '\\' && i + 1 < length) {
+								c = chunk[++i];
+							}
+							if (c == '\\') {
+								escaped = true;
+							} else if (c == quote) {
+								quote = 0;
+							}
+							continue;
+						} else if (comment == LINE_COMMENT) {
+							if (c == '\n' || c == '\r') {
+								comment = NONE;
+							}
+							continue;
+						} else if (comment == BLOCK_COMMENT) {
+							if (star && c == '/') {
+								comment = NONE;
+							}
+							star = c == '*';
+							continue;
+						}
+
+						if (slash) {
+							slash = false;
+							if (c == '/') {
+								comment = LINE_COMMENT;
+								continue;
+							} else if (c == '*') {
+								comment = BLOCK_COMMENT;
+								star = false;
+								continue;
+							}
+						} else if (c == '/' && comments) {
+							slash = true;
+							continue;
+						}
+						if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+							continue;
+						}
+
+						// A comma is only a place to cut if it is between two elements, so that cutting there can't hide a
+						// missing element from the reader
+						if (candidate != -1) {
+							if (c != ']' && c != ',') {
+								if (count == found.length) {
+									found = Arrays.copyOf(found, count * 2);
+								}
+								found[count++] = candidate;
+								last = candidate;
+							}
+							candidate = -1;
+						}
+
+						if (c == '"' || c == '\'' && singleQuotes) {
+							quote = c;
+						} else if (c == '[' || c == '{') {
+							if (depth == 0 && c != '[') {
+								break scan;
+							}
+							depth++;
+						} else if (c == ']' || c == '}') {
+							if (--depth <= 0) {
+								break scan;
+							}
+						} else if (c == ',') {
+							if (depth == 1 && previous != ',' && previous != '[' && offset + i - last >= SPLIT_SIZE) {
+								candidate = offset + i;
+							}
+						} else if (depth == 0) {
+							break scan; // not an array, so there is nowhere to cut
+						}
+						previous = c;
+					}
+					offset += length;
+				}
+			}
+
+			found = Arrays.copyOf(found, count + 1);
+			found[count] = size;
+			return boundaries = found;
+		}
+
+		/**
+		 * Returns fresh buffers over {@code [start, end)}, optionally wrapped in brackets.
+		 */
+		ByteBuffer[] slice(long start, long end, boolean open, boolean close) {
+			ByteBuffer[] pieces = new ByteBuffer[windows.length + 2];
+			int count = 0;
+			if (open) {
+				pieces[count++] = ByteBuffer.wrap(new byte[] { '[' });
+			}
+
+			long offset = 0;
+			for (ByteBuffer window : windows) {
+				long windowEnd = offset + window.remaining();
+				if (windowEnd > start && offset < end) {
+					ByteBuffer piece = window.duplicate();
+					piece.limit(window.position() + (int) (Math.min(end, windowEnd) - offset));
+					piece.position(window.position() + (int) (Math.max(start, offset) - offset));
+					pieces[count++] = piece;
+				}
+				offset = windowEnd;
+			}
+
+			if (close) {
+				pieces[count++] = ByteBuffer.wrap(new byte[] { ']' });
+			}
+			return Arrays.copyOf(pieces, count);
+		}
+	}
+}
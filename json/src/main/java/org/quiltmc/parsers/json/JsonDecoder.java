@@ -0,0 +1,36 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+
+/**
+ * Reads one value from a {@link JsonReader}, such as a record of a
+ * <a href="https://jsonlines.org/">JSON Lines</a> file.
+ *
+ * @param <T> the type of the decoded values.
+ * @see JsonLinesParser
+ * @see JsonPath
+ * @see JsonArraySpliterator
+ */
+@FunctionalInterface
+public interface JsonDecoder<T> {
+	/**
+	 * Consumes exactly one value from {@code reader} and returns what it represents.
+	 */
+	T decode(JsonReader reader) throws IOException;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+
+/**
+ * Writes one value to a {@link JsonWriter}; the counterpart of {@link JsonDecoder}.
+ *
+ * @param <T> the type of the encoded values.
+ * @see JsonWriter#writeAsync
+ */
+@FunctionalInterface
+public interface JsonEncoder<T> {
+	/**
+	 * Writes exactly one value, representing {@code value}, to {@code writer}.
+	 */
+	void encode(JsonWriter writer, T value) throws IOException;
+}
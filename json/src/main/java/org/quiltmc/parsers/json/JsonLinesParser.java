@@ -0,0 +1,378 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Parses <a href="https://jsonlines.org/">JSON Lines</a> input on several threads at once.
+ *
+ * <p>The input is cut into chunks of roughly {@linkplain #setChunkSize(int) a megabyte}, always just after a
+ * newline, and each chunk is decoded on the given {@link Executor} (such as a {@link java.util.concurrent.ForkJoinPool})
+ * with its own {@link JsonReader}. This relies on every record being on a single line, as JSON Lines requires:
+ * a record split across lines, for example by a multi-line comment, may be cut in half.
+ *
+ * <p>Decoded records are handed to the callback on the thread that called {@code parse}, one at a time. They
+ * arrive either in input order, or a chunk at a time in whichever order chunks finish, which keeps the pool
+ * busier when some records are much slower to decode than others. The counters accumulate over every call,
+ * and can be used to size the pool: {@link #getByteCount()} over {@link #getWallNanos()} is the achieved
+ * throughput, and {@link #getParseNanos()} over {@link #getWallNanos()} is the average number of busy threads.
+ *
+ * <p>If the callback or a chunk throws, or the calling thread is interrupted, chunks that haven't started are
+ * skipped and those being parsed are finished and thrown away, so {@code decoder} is never called once
+ * {@code parse} has returned or thrown.
+ *
+ * <p>Instances may be reused, but not by several threads at once.
+ */
+public final class JsonLinesParser {
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+	private static final int SCAN_BUFFER_SIZE = 8192;
+
+	private final JsonFormat format;
+	private final Executor executor;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int maxPendingChunks = 2 * Runtime.getRuntime().availableProcessors();
+	private boolean ordered = true;
+
+	private final LongAdder records = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private final LongAdder chunks = new LongAdder();
+	private final LongAdder parseNanos = new LongAdder();
+	private final LongAdder wallNanos = new LongAdder();
+
+	/**
+	 * @param format the format of each record.
+	 * @param executor runs the parsing of each chunk.
+	 */
+	public JsonLinesParser(JsonFormat format, Executor executor) {
+		this.format = Objects.requireNonNull(format, "Format cannot be null");
+		this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+	}
+
+	/**
+	 * Sets the number of bytes after which a chunk ends at the next newline. Defaults to 1MB.
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive, but was " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Sets how many chunks may be parsed or waiting to be delivered at once, which bounds the memory held by
+	 * decoded records. Defaults to twice the number of processors.
+	 */
+	public void setMaxPendingChunks(int maxPendingChunks) {
+		if (maxPendingChunks <= 0) {
+			throw new IllegalArgumentException("Maximum pending chunks must be positive, but was " + maxPendingChunks);
+		}
+		this.maxPendingChunks = maxPendingChunks;
+	}
+
+	/**
+	 * Chooses whether records are delivered in input order, which is the default, or as soon as their chunk
+	 * has been parsed.
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Decodes every record of the remaining UTF-8 encoded bytes of {@code input}. The buffer's own position is
+	 * left untouched, and it must not be modified until this returns.
+	 */
+	public <T> void parse(ByteBuffer input, JsonDecoder<? extends T> decoder, Consumer<? super T> callback) throws IOException {
+		run(new BufferInput(Objects.requireNonNull(input, "Input buffer cannot be null")), decoder, callback);
+	}
+
+	/**
+	 * Decodes every record of a UTF-8 encoded file, mapping each chunk into memory as it is parsed.
+	 */
+	public <T> void parse(Path file, JsonDecoder<? extends T> decoder, Consumer<? super T> callback) throws IOException {
+		try (FileChannel channel = FileChannel.open(Objects.requireNonNull(file, "Path cannot be null"), StandardOpenOption.READ)) {
+			run(new FileInput(channel), decoder, callback);
+		}
+	}
+
+	/**
+	 * Returns the number of records decoded so far.
+	 */
+	public long getRecordCount() {
+		return records.sum();
+	}
+
+	/**
+	 * Returns the number of input bytes parsed so far.
+	 */
+	public long getByteCount() {
+		return bytes.sum();
+	}
+
+	/**
+	 * Returns the number of chunks parsed so far.
+	 */
+	public long getChunkCount() {
+		return chunks.sum();
+	}
+
+	/**
+	 * Returns the time spent parsing chunks so far, summed over all threads.
+	 */
+	public long getParseNanos() {
+		return parseNanos.sum();
+	}
+
+	/**
+	 * Returns the time spent in {@code parse} so far, including waiting for and delivering results.
+	 */
+	public long getWallNanos() {
+		return wallNanos.sum();
+	}
+
+	private <T> void run(Input input, JsonDecoder<? extends T> decoder, Consumer<? super T> callback) throws IOException {
+		Objects.requireNonNull(decoder, "Decoder cannot be null");
+		Objects.requireNonNull(callback, "Callback cannot be null");
+		long started = System.nanoTime();
+		boolean ordered = this.ordered;
+		int maxPendingChunks = this.maxPendingChunks;
+
+		// Ordered delivery waits on chunks in submission order, unordered delivery in completion order
+		ArrayDeque<CompletableFuture<List<T>>> submitted = new ArrayDeque<>();
+		BlockingQueue<CompletableFuture<List<T>>> completed = new LinkedBlockingQueue<>();
+		AtomicBoolean cancelled = new AtomicBoolean();
+		long position = 0;
+		long size = input.size();
+		int pending = 0;
+		try {
+			while (true) {
+				while (pending < maxPendingChunks && position < size) {
+					long start = position;
+					long end = position = input.findChunkEnd(start + chunkSize);
+					CompletableFuture<List<T>> future = CompletableFuture.supplyAsync(() -> parseChunk(input, start, end, decoder, cancelled), executor);
+					if (ordered) {
+						submitted.add(future);
+					} else {
+						future.whenComplete((result, error) -> completed.add(future));
+					}
+					pending++;
+				}
+				if (pending == 0) {
+					return;
+				}
+
+				CompletableFuture<List<T>> next = ordered ? submitted.remove() : completed.take();
+				pending--;
+				for (T record : join(next)) {
+					callback.accept(record);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing JSON Lines");
+		} finally {
+			// Only matters if this is leaving early: chunks that haven't started are skipped, and the ones that
+			// have are waited for, so that no decoder is still running and the input is no longer read
+			cancelled.set(true);
+			awaitPending(ordered ? submitted : null, completed, pending);
+			wallNanos.add(System.nanoTime() - started);
+		}
+	}
+
+	/**
+	 * Waits for the chunks that were submitted but not delivered to finish, ignoring their results. Ordered
+	 * runs wait on {@code submitted}; unordered ones take {@code pending} chunks off {@code completed}.
+	 */
+	private static <T> void awaitPending(ArrayDeque<CompletableFuture<List<T>>> submitted, BlockingQueue<CompletableFuture<List<T>>> completed, int pending) {
+		boolean interrupted = false;
+		if (submitted != null) {
+			for (CompletableFuture<List<T>> future : submitted) {
+				try {
+					future.join();
+				} catch (RuntimeException ignored) {
+					// Only the first failure is reported
+				}
+			}
+		} else {
+			while (pending > 0) {
+				try {
+					completed.take();
+					pending--;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private <T> List<T> parseChunk(Input input, long start, long end, JsonDecoder<? extends T> decoder, AtomicBoolean cancelled) {
+		if (cancelled.get()) {
+			return Collections.emptyList();
+		}
+
+		long started = System.nanoTime();
+		List<T> results = new ArrayList<>();
+		try {
+			JsonReader reader = JsonReaderPool.borrow(input.slice(start, end), format);
+			try {
+				while (reader.hasNextDocument()) {
+					reader.beginDocument();
+					results.add(decoder.decode(reader));
+				}
+			} finally {
+				JsonReaderPool.release(reader);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		records.add(results.size());
+		bytes.add(end - start);
+		chunks.increment();
+		parseNanos.add(System.nanoTime() - started);
+		return results;
+	}
+
+	private static <T> List<T> join(CompletableFuture<List<T>> future) throws IOException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * The bytes being parsed, which chunks are cut from.
+	 */
+	private abstract static class Input {
+		abstract long size();
+
+		/**
+		 * Returns the position just after the first newline at or after {@code position - 1}, or the end of the
+		 * input if there is none. Only called by the thread that is cutting chunks.
+		 */
+		abstract long findChunkEnd(long position) throws IOException;
+
+		/**
+		 * Returns the bytes in {@code [start, end)}. May be called by several threads at once.
+		 */
+		abstract ByteBuffer slice(long start, long end) throws IOException;
+	}
+
+	private static final class BufferInput extends Input {
+		private final ByteBuffer buffer;
+		private final int base;
+
+		BufferInput(ByteBuffer buffer) {
+			this.buffer = buffer.duplicate();
+			this.base = buffer.position();
+		}
+
+		@Override
+		long size() {
+			return buffer.limit() - base;
+		}
+
+		@Override
+		long findChunkEnd(long position) {
+			int limit = buffer.limit();
+			for (int i = base + (int) Math.min(position - 1, size()); i < limit; i++) {
+				if (buffer.get(i) == '\n') {
+					return i + 1 - base;
+				}
+			}
+			return size();
+		}
+
+		@Override
+		ByteBuffer slice(long start, long end) {
+			ByteBuffer slice = buffer.duplicate();
+			slice.limit(base + (int) end);
+			slice.position(base + (int) start);
+			return slice.slice();
+		}
+	}
+
+	private static final class FileInput extends Input {
+		private final FileChannel channel;
+		private final long size;
+		private final ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+		FileInput(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+		}
+
+		@Override
+		long size() {
+			return size;
+		}
+
+		@Override
+		long findChunkEnd(long position) throws IOException {
+			for (long p = position - 1; p < size; ) {
+				scan.clear();
+				int read = channel.read(scan, p);
+				if (read <= 0) {
+					break;
+				}
+				for (int i = 0; i < read; i++) {
+					if (scan.get(i) == '\n') {
+						return p + i + 1;
+					}
+				}
+				p += read;
+			}
+			return size;
+		}
+
+		@Override
+		ByteBuffer slice(long start, long end) throws IOException {
+			return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		}
+	}
+}
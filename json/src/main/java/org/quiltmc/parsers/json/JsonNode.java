@@ -0,0 +1,391 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A value of a document tree that is only decoded as far as it is used. A node is no more than an index into a
+ * {@link JsonTape}: an object finds a member by comparing its names straight from the document, and strings
+ * and numbers are decoded the first time they are read, then cached. Children are created on first access and
+ * kept, so walking to the same value twice returns the same node.
+ *
+ * <p>This suits large documents of which only a few values are ever read, where building a whole tree up front
+ * would decode, and hold on to, everything else too:
+ *
+ * <pre>{@code
+ * JsonNode root = JsonNode.parse(path, JsonFormat.JSON5);
+ * String name = root.get("pack").get("name").asString();
+ * }</pre>
+ *
+ * <p>Unlike its tape, a node caches what it decodes, so a tree must not be used by several threads at once.
+ */
+public final class JsonNode {
+	private final JsonTape tape;
+	private final int index;
+	private final JsonToken token;
+
+	/* The last value decoded from a string or number. */
+	private @Nullable Object value;
+	/* For an object, the indices of the names of its members, and for an array, of its elements. */
+	private int[] children;
+	private JsonNode[] nodes;
+
+	private JsonNode(JsonTape tape, int index) {
+		this.tape = tape;
+		this.index = index;
+		this.token = tape.token(index);
+	}
+
+	/**
+	 * Returns the root of the tree of a document.
+	 *
+	 * @throws MalformedSyntaxException if the document is malformed.
+	 * @throws FormatViolationException if the document uses features {@code format} does not allow.
+	 */
+	public static JsonNode parse(String in, JsonFormat format) throws IOException {
+		return of(JsonTape.parse(in, format));
+	}
+
+	/**
+	 * Reads {@code in} to its end and returns the root of the tree of its contents. The reader is not closed.
+	 */
+	public static JsonNode parse(Reader in, JsonFormat format) throws IOException {
+		return of(JsonTape.parse(in, format));
+	}
+
+	/**
+	 * Returns the root of the tree of a UTF-8 encoded file.
+	 */
+	public static JsonNode parse(Path in, JsonFormat format) throws IOException {
+		return of(JsonTape.parse(in, format));
+	}
+
+	/**
+	 * Returns the root of a new tree over {@code tape}. Trees over the same tape share nothing but the tape.
+	 */
+	public static JsonNode of(JsonTape tape) {
+		return of(tape, 0);
+	}
+
+	/**
+	 * Returns the root of a new tree over the value at {@code index} of {@code tape}.
+	 *
+	 * @throws IllegalArgumentException if there is no value at {@code index}.
+	 */
+	public static JsonNode of(JsonTape tape, int index) {
+		Objects.requireNonNull(tape, "Tape cannot be null");
+		tape.cursor(index); // checks that there is a value
+		return new JsonNode(tape, index);
+	}
+
+	public JsonTape getTape() {
+		return tape;
+	}
+
+	/**
+	 * Returns the index of this value in its tape.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the token this value starts with: {@link JsonToken#BEGIN_OBJECT} for an object,
+	 * {@link JsonToken#BEGIN_ARRAY} for an array, or the token of a literal value.
+	 */
+	public JsonToken getType() {
+		return token;
+	}
+
+	public boolean isObject() {
+		return token == JsonToken.BEGIN_OBJECT;
+	}
+
+	public boolean isArray() {
+		return token == JsonToken.BEGIN_ARRAY;
+	}
+
+	public boolean isString() {
+		return token == JsonToken.STRING;
+	}
+
+	public boolean isNumber() {
+		return token == JsonToken.NUMBER;
+	}
+
+	public boolean isBoolean() {
+		return token == JsonToken.BOOLEAN;
+	}
+
+	public boolean isNull() {
+		return token == JsonToken.NULL;
+	}
+
+	/**
+	 * Returns the number of members of this object, or of elements of this array.
+	 *
+	 * @throws IllegalStateException if this is neither an object nor an array.
+	 */
+	public int size() {
+		return children().length;
+	}
+
+	/**
+	 * Returns true if this object has a member named {@code name}.
+	 *
+	 * @throws IllegalStateException if this is not an object.
+	 */
+	public boolean has(String name) {
+		return get(name) != null;
+	}
+
+	/**
+	 * Returns the value of the member of this object named {@code name}, or null if it has none. If several
+	 * members have that name, the first one is returned.
+	 *
+	 * @throws IllegalStateException if this is not an object.
+	 */
+	public @Nullable JsonNode get(String name) {
+		expect(JsonToken.BEGIN_OBJECT, "an object");
+		int value;
+		try {
+			value = tape.find(index, name);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return value == -1 ? null : child(Arrays.binarySearch(children(), value - 1));
+	}
+
+	/**
+	 * Returns the value of the member at {@code position} of this object, or the element at {@code position}
+	 * of this array.
+	 *
+	 * @throws IllegalStateException if this is neither an object nor an array.
+	 * @throws IndexOutOfBoundsException if there is no member or element at {@code position}.
+	 */
+	public JsonNode get(int position) {
+		int size = children().length;
+		if (position < 0 || position >= size) {
+			throw new IndexOutOfBoundsException("Index " + position + " out of bounds for size " + size);
+		}
+		return child(position);
+	}
+
+	/**
+	 * Returns the name of the member at {@code position} of this object.
+	 *
+	 * @throws IllegalStateException if this is not an object.
+	 * @throws IndexOutOfBoundsException if there is no member at {@code position}.
+	 */
+	public String name(int position) {
+		expect(JsonToken.BEGIN_OBJECT, "an object");
+		int[] children = children();
+		if (position < 0 || position >= children.length) {
+			throw new IndexOutOfBoundsException("Index " + position + " out of bounds for size " + children.length);
+		}
+		return decode(children[position]);
+	}
+
+	/**
+	 * Returns the names of the members of this object, in the order they appear in the document.
+	 *
+	 * @throws IllegalStateException if this is not an object.
+	 */
+	public List<String> names() {
+		expect(JsonToken.BEGIN_OBJECT, "an object");
+		int[] children = children();
+		List<String> names = new ArrayList<>(children.length);
+		for (int child : children) {
+			names.add(decode(child));
+		}
+		return Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * Returns the contents of this string, or the literal text of this number.
+	 *
+	 * @throws IllegalStateException if this is neither a string nor a number.
+	 */
+	public String asString() {
+		if (value instanceof String) {
+			return (String) value;
+		}
+
+		String result;
+		if (token == JsonToken.NUMBER) {
+			result = tape.text(index);
+		} else {
+			expect(JsonToken.STRING, "a string");
+			result = decode(index);
+		}
+		value = result;
+		return result;
+	}
+
+	/**
+	 * Returns the value of this number, like {@link JsonReader#nextDouble()}.
+	 *
+	 * @throws IllegalStateException if this is not a number.
+	 * @throws NumberFormatException if this cannot be parsed as a double.
+	 */
+	public double asDouble() {
+		if (value instanceof Double) {
+			return (Double) value;
+		}
+
+		expect(JsonToken.NUMBER, "a double");
+		double result;
+		try {
+			result = tape.newReader(index).nextDouble();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		value = result;
+		return result;
+	}
+
+	/**
+	 * Returns the value of this number, like {@link JsonReader#nextLong()}.
+	 *
+	 * @throws IllegalStateException if this is not a number.
+	 * @throws ArithmeticException if this is not an integer, or is out of the range of a long.
+	 */
+	public long asLong() {
+		if (value instanceof Long) {
+			return (Long) value;
+		}
+
+		expect(JsonToken.NUMBER, "a long");
+		long result;
+		if (tape.isPlainInteger(index)) {
+			result = tape.parsePlainInteger(index);
+		} else {
+			try {
+				result = tape.newReader(index).nextLong();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		value = result;
+		return result;
+	}
+
+	/**
+	 * Returns the value of this number, like {@link JsonReader#nextInt()}.
+	 *
+	 * @throws IllegalStateException if this is not a number.
+	 * @throws ArithmeticException if this is not an integer, or is out of the range of an int.
+	 */
+	public int asInt() {
+		long result = asLong();
+		if ((int) result != result) {
+			throw new ArithmeticException("Expected an int but was " + result + location());
+		}
+		return (int) result;
+	}
+
+	/**
+	 * @throws IllegalStateException if this is not a boolean.
+	 */
+	public boolean asBoolean() {
+		expect(JsonToken.BOOLEAN, "a boolean");
+		return (tape.firstChar(index) | 0x20) == 't';
+	}
+
+	/**
+	 * Returns a new reader of this value, like {@link JsonTape#reader(int)}.
+	 */
+	public JsonReader reader() {
+		return tape.reader(index);
+	}
+
+	/**
+	 * Returns the source text of this value, as it appears in the document.
+	 */
+	@Override
+	public String toString() {
+		return tape.text(index);
+	}
+
+	/**
+	 * Returns the indices of the children of this object or array, walking over them on first use.
+	 */
+	private int[] children() {
+		int[] children = this.children;
+		if (children != null) {
+			return children;
+		}
+
+		boolean object = token == JsonToken.BEGIN_OBJECT;
+		if (!object) {
+			expect(JsonToken.BEGIN_ARRAY, "an object or array");
+		}
+
+		int count = 0;
+		int[] found = new int[8];
+		for (int i = index + 1, last = tape.next(index) - 1; i < last; i = tape.next(object ? i + 1 : i)) {
+			if (count == found.length) {
+				found = Arrays.copyOf(found, count * 2);
+			}
+			found[count++] = i;
+		}
+		this.nodes = new JsonNode[count];
+		return this.children = Arrays.copyOf(found, count);
+	}
+
+	private JsonNode child(int position) {
+		JsonNode node = nodes[position];
+		if (node == null) {
+			int child = children[position];
+			node = nodes[position] = new JsonNode(tape, token == JsonToken.BEGIN_OBJECT ? child + 1 : child);
+		}
+		return node;
+	}
+
+	private String decode(int index) {
+		String raw = tape.rawString(index);
+		if (raw != null) {
+			return raw;
+		}
+		try {
+			return tape.newReader(index).nextString();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void expect(JsonToken expected, String description) {
+		if (token != expected) {
+			throw new IllegalStateException("Expected " + description + " but was " + token + location());
+		}
+	}
+
+	private String location() {
+		return " at " + tape.lineAndColumn(tape.start(index));
+	}
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A compiled <a href="https://goessner.net/articles/JsonPath/">JSONPath</a> expression, which picks values out
+ * of a document in a single streaming pass over a {@link JsonReader}. The supported subset is:
+ *
+ * <ul>
+ *   <li>{@code $}, the root value, which every path starts with;</li>
+ *   <li>{@code .name}, {@code ['name']} and {@code ["name"]}, the member of an object with that name;</li>
+ *   <li>{@code .*} and {@code [*]}, every member of an object or element of an array;</li>
+ *   <li>{@code [2]}, the element of an array at that index;</li>
+ *   <li>{@code [1:5]}, {@code [1:]} and {@code [::2]}, the elements of an array in a slice, where the start
+ *       and end may not be negative, since the length of an array isn't known until it has been read;</li>
+ *   <li>{@code ..}, which applies the step it prefixes, like {@code ..name} or {@code ..[0]}, at any depth.</li>
+ * </ul>
+ *
+ * <p>Each match is handed to a {@link JsonDecoder}, which reads it straight from the reader. Any part of the
+ * document that cannot contain a match is passed over with {@link JsonReader#skipValueFast()}, so its syntax
+ * is not checked as thoroughly as the rest. As a match is consumed by its decoder, matches nested inside
+ * another match are not reported.
+ *
+ * <p>Paths are immutable, and may be used by several threads at once.
+ */
+public final class JsonPath {
+	private static final int MAX_STEPS = 63;
+
+	private final String expression;
+	private final Step[] steps;
+	/* The state in which a value has matched every step. */
+	private final long matched;
+
+	private JsonPath(String expression, Step[] steps) {
+		this.expression = expression;
+		this.steps = steps;
+		this.matched = 1L << steps.length;
+	}
+
+	/**
+	 * Compiles a JSONPath expression.
+	 *
+	 * @throws IllegalArgumentException if the expression is malformed, or uses features that are not supported.
+	 */
+	public static JsonPath compile(String expression) {
+		Objects.requireNonNull(expression, "Expression cannot be null");
+		return new JsonPath(expression, new Parser(expression).parse());
+	}
+
+	/**
+	 * Reads the next value of {@code reader}, and passes each part of it that this path matches to
+	 * {@code decoder}, in document order. What the decoder returns is handed to {@code callback}.
+	 */
+	public <T> void select(JsonReader reader, JsonDecoder<? extends T> decoder, Consumer<? super T> callback) throws IOException {
+		// The states of each object and array being read, and the index of the next element of each array
+		long[] scopes = new long[16];
+		int[] indices = new int[16];
+		int depth = 0;
+
+		/*
+		 * The states of the value about to be read: bit k is set if it has matched the first k steps, including
+		 * when step k is recursive and it has matched the first k steps at any depth.
+		 */
+		long states = 1L;
+		while (true) {
+			if ((states & matched) != 0) {
+				callback.accept(decoder.decode(reader));
+			} else if (states == 0) {
+				reader.skipValueFast();
+			} else {
+				JsonToken token = reader.peek();
+				if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+					if (depth == scopes.length) {
+						scopes = Arrays.copyOf(scopes, depth * 2);
+						indices = Arrays.copyOf(indices, depth * 2);
+					}
+					if (token == JsonToken.BEGIN_OBJECT) {
+						reader.beginObject();
+						indices[depth] = -1;
+					} else {
+						reader.beginArray();
+						indices[depth] = 0;
+					}
+					scopes[depth++] = states;
+				} else {
+					reader.skipValue();
+				}
+			}
+
+			// Move on to the next value, leaving any objects and arrays that have ended
+			while (true) {
+				if (depth == 0) {
+					return;
+				}
+				if (reader.hasNext()) {
+					int index = indices[depth - 1];
+					if (index == -1) {
+						states = advance(scopes[depth - 1], reader.nextNameView(), -1);
+					} else {
+						states = advance(scopes[depth - 1], null, index);
+						indices[depth - 1]++;
+					}
+					break;
+				}
+				if (indices[--depth] == -1) {
+					reader.endObject();
+				} else {
+					reader.endArray();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the states of the member named {@code name}, or of the element at {@code index}, of a value in
+	 * the given states.
+	 */
+	private long advance(long states, @Nullable CharSequence name, int index) {
+		long result = 0;
+		for (long remaining = states; remaining != 0; remaining &= remaining - 1) {
+			int k = Long.numberOfTrailingZeros(remaining);
+			Step step = steps[k];
+			if (step.recursive) {
+				result |= 1L << k;
+			}
+			if (step.matches(name, index)) {
+				result |= 1L << (k + 1);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	private static final class Step {
+		final boolean recursive;
+		/* The name of the member this step selects, or null if it selects elements by index, or everything. */
+		final @Nullable String name;
+		final boolean wildcard;
+		final int start;
+		final int end;
+		final int stride;
+
+		Step(boolean recursive, @Nullable String name, boolean wildcard, int start, int end, int stride) {
+			this.recursive = recursive;
+			this.name = name;
+			this.wildcard = wildcard;
+			this.start = start;
+			this.end = end;
+			this.stride = stride;
+		}
+
+		boolean matches(@Nullable CharSequence member, int index) {
+			if (wildcard) {
+				return true;
+			} else if (member != null) {
+				return name != null && name.contentEquals(member);
+			} else {
+				return name == null && index >= start && index < end && (index - start) % stride == 0;
+			}
+		}
+	}
+
+	private static final class Parser {
+		private final String expression;
+		private int pos;
+
+		Parser(String expression) {
+			this.expression = expression;
+		}
+
+		Step[] parse() {
+			if (!expression.startsWith("$")) {
+				throw error("Expected '$'");
+			}
+			pos = 1;
+
+			List<Step> steps = new ArrayList<>();
+			while (pos < expression.length()) {
+				boolean recursive = false;
+				char c = expression.charAt(pos);
+				if (c == '.') {
+					pos++;
+					if (pos < expression.length() && expression.charAt(pos) == '.') {
+						recursive = true;
+						pos++;
+					}
+					if (pos < expression.length() && expression.charAt(pos) == '[') {
+						if (!recursive) {
+							throw error("Unexpected '['");
+						}
+						steps.add(bracket(true));
+					} else if (pos < expression.length() && expression.charAt(pos) == '*') {
+						pos++;
+						steps.add(new Step(recursive, null, true, 0, 0, 1));
+					} else {
+						steps.add(new Step(recursive, name(), false, 0, 0, 1));
+					}
+				} else if (c == '[') {
+					steps.add(bracket(false));
+				} else {
+					throw error("Expected '.' or '['");
+				}
+
+				if (steps.size() > MAX_STEPS) {
+					throw error("Paths may have at most " + MAX_STEPS + " steps");
+				}
+			}
+			return steps.toArray(new Step[0]);
+		}
+
+		private String name() {
+			int start = pos;
+			while (pos < expression.length() && expression.charAt(pos) != '.' && expression.charAt(pos) != '[') {
+				pos++;
+			}
+			if (pos == start) {
+				throw error("Expected a name");
+			}
+			return expression.substring(start, pos);
+		}
+
+		private Step bracket(boolean recursive) {
+			pos++; // '['
+			Step step;
+			char c = peek();
+			if (c == '*') {
+				pos++;
+				step = new Step(recursive, null, true, 0, 0, 1);
+			} else if (c == '\'' || c == '"') {
+				step = new Step(recursive, quoted(c), false, 0, 0, 1);
+			} else {
+				int start = c == ':' ? 0 : integer();
+				int end = start + 1;
+				int stride = 1;
+				if (peek() == ':') {
+					pos++;
+					end = peek() == ':' || peek() == ']' ? Integer.MAX_VALUE : integer();
+					if (peek() == ':') {
+						pos++;
+						stride = peek() == ']' ? 1 : integer();
+						if (stride == 0) {
+							throw error("Slice steps must be positive");
+						}
+					}
+				}
+				step = new Step(recursive, null, false, start, end, stride);
+			}
+
+			if (peek() != ']') {
+				throw error("Expected ']'");
+			}
+			pos++;
+			return step;
+		}
+
+		private String quoted(char quote) {
+			StringBuilder name = new StringBuilder();
+			pos++;
+			while (true) {
+				char c = peek();
+				pos++;
+				if (c == quote) {
+					return name.toString();
+				} else if (c == '\\') {
+					c = peek();
+					pos++;
+				}
+				name.append(c);
+			}
+		}
+
+		private int integer() {
+			int start = pos;
+			while (pos < expression.length() && expression.charAt(pos) >= '0' && expression.charAt(pos) <= '9') {
+				pos++;
+			}
+			if (pos == start) {
+				throw error(peek() == '-' ? "Negative indices are not supported" : "Expected an index");
+			}
+			try {
+				return Integer.parseInt(expression.substring(start, pos));
+			} catch (NumberFormatException e) {
+				throw error("Index out of range");
+			}
+		}
+
+		private char peek() {
+			if (pos >= expression.length()) {
+				throw error("Unexpected end of path");
+			}
+			return expression.charAt(pos);
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at index " + pos + " of path " + expression);
+		}
+	}
+}
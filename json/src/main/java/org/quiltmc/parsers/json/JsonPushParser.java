@@ -0,0 +1,344 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Parses UTF-8 encoded input that is handed over in chunks, as it arrives, instead of being pulled from a
+ * blocking {@link Reader}. This lets a non-blocking server, such as one built on an NIO event loop, parse
+ * requests without dedicating a thread to each connection:
+ *
+ * <pre>{@code
+ * parser.feed(chunk);
+ * JsonToken token;
+ * while ((token = parser.nextToken()) != null) {
+ *     handle(token, parser);
+ * }
+ * // out of input: wait for the next chunk
+ * }</pre>
+ *
+ * <p>Chunks may end anywhere, even in the middle of a token or a UTF-8 sequence. The tokens are read by a
+ * {@link JsonReader}, so the same formats are accepted; a token that has only partly arrived is simply read
+ * again from its start once more input is fed. Very long tokens that arrive in many small chunks are therefore
+ * scanned several times.
+ *
+ * <p>The end of a document is only known once {@link #endOfInput()} has been called, since more whitespace or
+ * comments may follow it. Until then, {@link #getDepth()} tells when a top-level object or array is complete.
+ *
+ * <p>Instances of this class are not thread safe.
+ */
+public final class JsonPushParser {
+	private static final int INITIAL_INPUT_SIZE = 8192;
+
+	private final JsonFormat format;
+	private final FeedReader input = new FeedReader();
+	private final JsonReader reader;
+	private @Nullable JsonReader numberReader;
+
+	private @Nullable JsonToken token;
+	private @Nullable String text;
+	private boolean bool;
+	private int depth;
+
+	public JsonPushParser(JsonFormat format) {
+		this.format = Objects.requireNonNull(format, "Format cannot be null");
+		this.reader = JsonReader.create(input, format);
+	}
+
+	public JsonFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Like {@link JsonReader#setSymbolTable(JsonSymbolTable)}.
+	 */
+	public void setSymbolTable(@Nullable JsonSymbolTable table) {
+		reader.setSymbolTable(table);
+	}
+
+	/**
+	 * Like {@link JsonReader#setLocationTracking(JsonReader.LocationTracking)}.
+	 *
+	 * @throws IllegalStateException if parsing has already started.
+	 */
+	public void setLocationTracking(JsonReader.LocationTracking tracking) {
+		reader.setLocationTracking(tracking);
+	}
+
+	/**
+	 * Adds the given bytes to the input. They are copied, so the array may be reused as soon as this returns.
+	 *
+	 * @throws IllegalStateException if {@link #endOfInput()} has been called.
+	 */
+	public void feed(byte[] bytes, int offset, int length) {
+		feed(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Adds the remaining bytes of {@code bytes} to the input, leaving the buffer's position at its limit.
+	 *
+	 * @throws IllegalStateException if {@link #endOfInput()} has been called.
+	 */
+	public void feed(ByteBuffer bytes) {
+		input.feed(bytes);
+	}
+
+	/**
+	 * Signals that no more input will be fed. Once the remaining input has been read, {@link #nextToken()}
+	 * returns {@link JsonToken#END_DOCUMENT}.
+	 */
+	public void endOfInput() {
+		input.ended = true;
+	}
+
+	/**
+	 * Reads the next token, if all of it has been fed, and returns its type. Names, strings and numbers can
+	 * then be read with {@link #getString()}, and booleans with {@link #getBoolean()}.
+	 *
+	 * @return the token, or null if more input is needed to read it.
+	 * @throws MalformedSyntaxException if the input is malformed.
+	 * @throws FormatViolationException if the input uses features the parser's format does not allow.
+	 */
+	public @Nullable JsonToken nextToken() throws IOException {
+		reader.checkpoint();
+		try {
+			JsonToken next = reader.peek();
+			switch (next) {
+			case BEGIN_OBJECT:
+				reader.beginObject();
+				depth++;
+				break;
+			case END_OBJECT:
+				reader.endObject();
+				depth--;
+				break;
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				depth++;
+				break;
+			case END_ARRAY:
+				reader.endArray();
+				depth--;
+				break;
+			case NAME:
+				text = reader.nextName();
+				break;
+			case STRING:
+			case NUMBER:
+				text = reader.nextString();
+				break;
+			case BOOLEAN:
+				bool = reader.nextBoolean();
+				break;
+			case NULL:
+				reader.nextNull();
+				break;
+			case END_DOCUMENT:
+				break;
+			}
+			return token = next;
+		} catch (NeedMoreInput e) {
+			reader.rewind();
+			return null;
+		} finally {
+			reader.releaseCheckpoint();
+		}
+	}
+
+	/**
+	 * Returns the last token read by {@link #nextToken()}, or null if none has been read yet.
+	 */
+	public @Nullable JsonToken getToken() {
+		return token;
+	}
+
+	/**
+	 * Returns the number of objects and arrays the parser is in.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Returns the last name or string read, or the literal text of the last number.
+	 *
+	 * @throws IllegalStateException if the last token is not a name, string or number.
+	 */
+	public String getString() {
+		if (token != JsonToken.NAME && token != JsonToken.STRING && token != JsonToken.NUMBER) {
+			throw new IllegalStateException("Expected a name, string or number but was " + token);
+		}
+		return text;
+	}
+
+	/**
+	 * @throws IllegalStateException if the last token is not a boolean.
+	 */
+	public boolean getBoolean() {
+		if (token != JsonToken.BOOLEAN) {
+			throw new IllegalStateException("Expected a boolean but was " + token);
+		}
+		return bool;
+	}
+
+	/**
+	 * Returns the value of the last number, like {@link JsonReader#nextDouble()}.
+	 *
+	 * @throws IllegalStateException if the last token is not a number.
+	 */
+	public double getDouble() throws IOException {
+		return number("a double").nextDouble();
+	}
+
+	/**
+	 * Like {@link #getDouble()}, but for {@link JsonReader#nextLong()}.
+	 */
+	public long getLong() throws IOException {
+		return number("a long").nextLong();
+	}
+
+	/**
+	 * Like {@link #getDouble()}, but for {@link JsonReader#nextInt()}.
+	 */
+	public int getInt() throws IOException {
+		return number("an int").nextInt();
+	}
+
+	/**
+	 * Like {@link JsonReader#path()}.
+	 */
+	public String path() {
+		return reader.path();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + reader.locationString();
+	}
+
+	private JsonReader number(String expected) {
+		if (token != JsonToken.NUMBER) {
+			throw new IllegalStateException("Expected " + expected + " but was " + token);
+		}
+
+		if (numberReader == null) {
+			numberReader = JsonReader.create(text, format);
+		} else {
+			numberReader.reset(text, format);
+		}
+		numberReader.setLocationTracking(JsonReader.LocationTracking.NONE);
+		return numberReader;
+	}
+
+	/**
+	 * Thrown by the reader when it has handed out all the input fed so far. It never escapes the parser.
+	 */
+	private static final class NeedMoreInput extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		static final NeedMoreInput INSTANCE = new NeedMoreInput();
+
+		private NeedMoreInput() {
+			super("More input is needed");
+		}
+
+		@Override
+		public synchronized Throwable fillInStackTrace() {
+			return this; // thrown for every partial token, so it has to be cheap
+		}
+	}
+
+	/**
+	 * Decodes the bytes fed so far, and signals when it runs out of them.
+	 */
+	private static final class FeedReader extends Reader {
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+		private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_INPUT_SIZE);
+		/* The second half of a surrogate pair that didn't fit into the caller's buffer. */
+		private char pendingLowSurrogate;
+		boolean ended;
+
+		FeedReader() {
+			bytes.flip();
+		}
+
+		void feed(ByteBuffer in) {
+			if (ended) {
+				throw new IllegalStateException("Input has already ended");
+			}
+
+			if (bytes.capacity() - bytes.remaining() < in.remaining()) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(bytes.remaining() + in.remaining(), bytes.capacity() * 2));
+				grown.put(bytes);
+				bytes = grown;
+			} else {
+				bytes.compact();
+			}
+			bytes.put(in);
+			bytes.flip();
+		}
+
+		@Override
+		public int read(char[] chars, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			if (pendingLowSurrogate != 0) {
+				chars[offset] = pendingLowSurrogate;
+				pendingLowSurrogate = 0;
+				return 1;
+			}
+
+			CharBuffer out = CharBuffer.wrap(chars, offset, length);
+			CoderResult result = decoder.decode(bytes, out, ended);
+			if (result.isError()) {
+				result.throwException();
+			}
+
+			int read = out.position() - offset;
+			if (read == 0 && result.isOverflow()) {
+				// Only one char fits, but the next code point needs two
+				CharBuffer pair = CharBuffer.allocate(2);
+				decoder.decode(bytes, pair, ended);
+				chars[offset] = pair.get(0);
+				pendingLowSurrogate = pair.get(1);
+				return 1;
+			}
+
+			if (read > 0) {
+				return read;
+			} else if (ended) {
+				return -1;
+			}
+			throw NeedMoreInput.INSTANCE;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -17,13 +17,28 @@
 
 package org.quiltmc.parsers.json;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*
  * The following changes have been applied from the original in GSON:
@@ -222,6 +237,21 @@ public final class JsonReader implements Closeable {
 	private static final int PEEKED_NEGATIVE_INF = 19;
 	private static final int PEEKED_EOF = 20;
 
+	private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	/** What {@link #path()} and {@link #getPath()} return when paths are not tracked. */
+	public static final String UNTRACKED_PATH = "<untracked>";
+
+	/** The largest region of a file that {@link #createMapped(Path, JsonFormat)} maps at once. */
+	private static final int MAPPING_WINDOW_SIZE = 1 << 30;
+
+	/** The size and number of the chunks {@link #createReadAhead(Path, JsonFormat)} reads ahead. */
+	private static final int READ_AHEAD_CHUNK_SIZE = 64 * 1024;
+	private static final int READ_AHEAD_CHUNKS = 4;
+
+	/** How many chars of a Base64 value {@link #nextBinary(OutputStream)} decodes at a time. */
+	private static final int BINARY_CHUNK_SIZE = 4096;
+
 	/* State machine when parsing numbers */
 	private static final int NUMBER_CHAR_NONE = 0;
 	private static final int NUMBER_CHAR_SIGN = 1;
@@ -233,26 +263,52 @@ public final class JsonReader implements Closeable {
 	private static final int NUMBER_CHAR_EXP_DIGIT = 7;
 	private static final int NUMBER_CHAR_ZERO = 8;
 	private static final int NUMBER_CHAR_HEXADECIMAL = 9;
+
+	/* Finds the chars the scanning loops stop at, many chars at a time where the platform allows it. */
+	private static final CharScanner SCANNER = CharScanner.INSTANCE;
+
 	/** The input JSON. */
-	private final Reader in;
+	private Reader in;
 
-	private final JsonFormat format;
+	private JsonFormat format;
 
 	private boolean allowNonExecutePrefix = false;
 
 	/**
 	 * Use a manual buffer to easily read and unread upcoming characters, and
 	 * also so we can create strings without an intermediate StringBuilder.
-	 * We decode literals directly out of this buffer, so it must be at least as
-	 * long as the longest token that can be reported as a number.
+	 * We decode literals directly out of this buffer, so it grows whenever a
+	 * number is longer than it. It is only allocated once input is first read,
+	 * so that a {@link #bufferPool} can be set beforehand.
 	 */
-	private final char[] buffer = new char[1024];
+	private char[] buffer;
+	private final int bufferSize;
+	private BufferPool bufferPool;
+	/* Whether the reader is lent out by JsonReaderPool. Only the pool reads and writes it. */
+	boolean borrowed;
+
+	/**
+	 * The window handed out by the zero-copy accessors, and the buffer it points
+	 * into when a value has escapes or doesn't fit in {@link #buffer}.
+	 */
+	private final CharView view = new CharView();
+	private char[] scratch;
+
+	/* Optional caches of canonical names and string values. */
+	private JsonSymbolTable nameTable;
+	private JsonSymbolTable valueTable;
 	private int pos = 0;
 	private int limit = 0;
+	/* The number of chars discarded from the front of the buffer so far, which makes bufferOffset + pos absolute. */
+	private long bufferOffset = 0;
 
 	private int lineNumber = 0;
 	private int lineStart = 0;
 
+	/* What setLocationTracking() asked to keep up to date. Without trackLines, lines are only counted in fillBuffer(). */
+	private boolean trackPaths = true;
+	private boolean trackLines = true;
+
 	int peeked = PEEKED_NONE;
 
 	/**
@@ -261,6 +317,28 @@ public final class JsonReader implements Closeable {
 	 */
 	private int peekedNumberLength;
 
+	/**
+	 * The value of a peeked number literal, once it has been decoded by
+	 * {@link #decodePeekedLong(int)}.
+	 */
+	private long peekedLong;
+
+	private final FastDoubleParser doubleParser = new FastDoubleParser();
+
+	/*
+	 * The state to go back to when JsonPushParser runs out of input part way through a token. While the
+	 * checkpoint is set, fillBuffer() keeps every char from it on.
+	 */
+	private long checkpoint = -1;
+	private long checkpointLineStart;
+	private int checkpointLineNumber;
+	private int checkpointPeeked;
+	private int checkpointStackSize;
+	private int checkpointScope;
+
+	/* The kinds of the containers being skipped over by skipValueFast(), one bit per nesting level. */
+	private long[] skipScopes;
+
 	/**
 	 * A peeked string that should be parsed on the next double, long or string.
 	 * This is populated before a numeric value is parsed and used if that parsing
@@ -337,6 +415,14 @@ public final class JsonReader implements Closeable {
 		return new JsonReader(in, format);
 	}
 
+	/**
+	 * Creates a new instance that reads from the provided path with an initial read buffer of
+	 * {@code bufferSize} chars. Larger buffers mean fewer, larger reads from the file.
+	 */
+	public static JsonReader create(Path in, JsonFormat format, int bufferSize) throws IOException {
+		return new JsonReader(new Utf8Reader(Files.newInputStream(Objects.requireNonNull(in, "Path cannot be null"))), format, bufferSize);
+	}
+
 	public static JsonReader create(String in, JsonFormat format) {
 		return new JsonReader(in, format);
 	}
@@ -345,18 +431,234 @@ public final class JsonReader implements Closeable {
 		return new JsonReader(in, format);
 	}
 
+	/**
+	 * Creates a new instance that reads from the provided Reader with an initial read buffer of
+	 * {@code bufferSize} chars.
+	 */
+	public static JsonReader create(Reader in, JsonFormat format, int bufferSize) {
+		return new JsonReader(in, format, bufferSize);
+	}
+
+	/**
+	 * Creates a new instance that reads a UTF-8 encoded stream. Runs of ASCII are copied straight into the
+	 * read buffer, so there is no need to wrap the stream in an {@link InputStreamReader}.
+	 */
+	public static JsonReader create(InputStream in, JsonFormat format) {
+		return new JsonReader(new Utf8Reader(Objects.requireNonNull(in, "Input stream cannot be null")), format);
+	}
+
+	/**
+	 * Creates a new instance that reads a UTF-8 encoded stream with an initial read buffer of
+	 * {@code bufferSize} chars.
+	 */
+	public static JsonReader create(InputStream in, JsonFormat format, int bufferSize) {
+		return new JsonReader(new Utf8Reader(Objects.requireNonNull(in, "Input stream cannot be null")), format, bufferSize);
+	}
+
+	/**
+	 * Creates a new instance that reads UTF-8 encoded bytes. The array is not copied, so it must not be
+	 * modified while it is being read.
+	 */
+	public static JsonReader create(byte[] in, JsonFormat format) {
+		Objects.requireNonNull(in, "Input bytes cannot be null");
+		return new JsonReader(new Utf8Reader(in, 0, in.length), format);
+	}
+
+	/**
+	 * Creates a new instance that reads the remaining UTF-8 encoded bytes of a buffer. The buffer's own
+	 * position is left untouched, so one buffer may be shared between several readers.
+	 */
+	public static JsonReader create(ByteBuffer in, JsonFormat format) {
+		return new JsonReader(new Utf8Reader(Objects.requireNonNull(in, "Input buffer cannot be null")), format);
+	}
+
+	/**
+	 * Creates a new instance that reads a UTF-8 encoded file through a read-only memory mapping, so its
+	 * contents are decoded straight out of the page cache rather than copied through a stream. The decoded
+	 * chars still pass through the reader's buffer, which is refilled as it is consumed like for any source.
+	 * The file is mapped in windows of at most {@value #MAPPING_WINDOW_SIZE} bytes, so files larger than 2GB
+	 * can be read too.
+	 *
+	 * <p>To parse several regions of one file concurrently, map it once with {@link FileChannel#map} and hand
+	 * each reader a {@link ByteBuffer#slice() slice} of the mapping via {@link #create(ByteBuffer, JsonFormat)}.
+	 */
+	public static JsonReader createMapped(Path in, JsonFormat format) throws IOException {
+		Objects.requireNonNull(in, "Path cannot be null");
+		// The mapping stays valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(in, StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer[] windows = new ByteBuffer[(int) ((size + MAPPING_WINDOW_SIZE - 1) / MAPPING_WINDOW_SIZE)];
+			for (int i = 0; i < windows.length; i++) {
+				long start = (long) i * MAPPING_WINDOW_SIZE;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAPPING_WINDOW_SIZE, size - start));
+			}
+			return new JsonReader(new Utf8Reader(windows), format);
+		}
+	}
+
+	/**
+	 * Creates a new instance that reads a UTF-8 encoded file on a helper thread, which reads and decodes up to
+	 * {@value #READ_AHEAD_CHUNKS} chunks of up to {@value #READ_AHEAD_CHUNK_SIZE} chars ahead of the parser. This hides
+	 * the latency of slow storage, such as a network filesystem, behind the time spent tokenizing; for files that
+	 * are already in memory, it only adds a copy.
+	 *
+	 * <p>Closing the reader stops the helper thread and closes the file.
+	 */
+	public static JsonReader createReadAhead(Path in, JsonFormat format) throws IOException {
+		Reader source = new Utf8Reader(Files.newInputStream(Objects.requireNonNull(in, "Path cannot be null")));
+		return new JsonReader(new ReadAheadReader(source, READ_AHEAD_CHUNK_SIZE, READ_AHEAD_CHUNKS), format);
+	}
+
+	/**
+	 * Creates a new instance that reads {@code in} on a helper thread, like {@link #createReadAhead(Path, JsonFormat)},
+	 * keeping up to {@code chunkCount} chunks of up to {@code chunkSize} chars read ahead of the parser. From then on,
+	 * {@code in} must not be used by anything else.
+	 *
+	 * @throws IllegalArgumentException if {@code chunkSize} or {@code chunkCount} is not positive.
+	 */
+	public static JsonReader createReadAhead(Reader in, JsonFormat format, int chunkSize, int chunkCount) {
+		Objects.requireNonNull(in, "Reader cannot be null");
+		return new JsonReader(new ReadAheadReader(in, chunkSize, chunkCount), format);
+	}
+
+	/**
+	 * Reads and decodes a whole UTF-8 encoded file without blocking the calling thread. The file is read through
+	 * an {@link AsynchronousFileChannel} into two buffers, so the next chunk is read while the current one is
+	 * tokenized, and {@code decoder} only runs on {@code executor} once the first chunk has arrived; after that,
+	 * it waits only if it gets ahead of the disk.
+	 *
+	 * <p>The returned future fails with the {@link IOException} that stopped the read, with an
+	 * {@link IllegalStateException} if the decoder did not consume the whole document, or with a
+	 * {@link RejectedExecutionException} if {@code executor} did not accept the decoding task.
+	 */
+	public static <T> CompletableFuture<T> readAsync(Path in, JsonFormat format, JsonDecoder<? extends T> decoder, Executor executor) {
+		Objects.requireNonNull(in, "Path cannot be null");
+		Objects.requireNonNull(format, "Format cannot be null");
+		Objects.requireNonNull(decoder, "Decoder cannot be null");
+		Objects.requireNonNull(executor, "Executor cannot be null");
+
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AsyncFileInputStream input;
+		try {
+			input = new AsyncFileInputStream(in);
+		} catch (IOException e) {
+			result.completeExceptionally(e);
+			return result;
+		}
+
+		// A failed first read is reported by the reader, along with where it happened
+		input.ready().whenComplete((ignored, e) -> {
+			try {
+				executor.execute(() -> {
+					try (JsonReader reader = new JsonReader(new Utf8Reader(input), format)) {
+						T value = decoder.decode(reader);
+						if (reader.peek() != JsonToken.END_DOCUMENT) {
+							throw new IllegalStateException("Expected END_DOCUMENT but was " + reader.peek() + reader.locationString());
+						}
+						result.complete(value);
+					} catch (Throwable t) {
+						result.completeExceptionally(t);
+					}
+				});
+			} catch (RejectedExecutionException rejected) {
+				try {
+					input.close();
+				} catch (IOException closeFailure) {
+					rejected.addSuppressed(closeFailure);
+				}
+				result.completeExceptionally(rejected);
+			}
+		});
+		return result;
+	}
+
 	private JsonReader(String in, JsonFormat format) {
 		this(new StringReader(Objects.requireNonNull(in, "Input string cannot be null")), format);
 	}
 
 	private JsonReader(Path in, JsonFormat format) throws IOException {
-		this(Files.newBufferedReader(Objects.requireNonNull(in, "Path cannot be null")), format);
+		this(new Utf8Reader(Files.newInputStream(Objects.requireNonNull(in, "Path cannot be null"))), format);
 	}
 
 	private JsonReader(Reader in, JsonFormat format) {
+		this(in, format, DEFAULT_BUFFER_SIZE);
+	}
+
+	private JsonReader(Reader in, JsonFormat format, int bufferSize) {
 		Objects.requireNonNull(in, "Reader cannot be null");
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive, but was " + bufferSize);
+		}
 		this.in = in;
 		this.format = format;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Points this reader at a new document, as if it had just been created with
+	 * {@link #create(Reader, JsonFormat)}, but keeps the arrays it has already allocated: the read buffer,
+	 * the nesting stack and the path members. This lets a long-running service parse many small documents
+	 * without allocating a new reader for each one.
+	 *
+	 * <p>The previous input is not closed. Settings such as symbol tables, location tracking and the
+	 * non-execute prefix go back to their defaults; only the {@linkplain #setBufferPool(BufferPool) buffer pool}
+	 * is kept, since the read buffer may have come from it.
+	 *
+	 * @see JsonReaderPool
+	 */
+	public void reset(Reader in, JsonFormat format) {
+		this.in = Objects.requireNonNull(in, "Reader cannot be null");
+		this.format = format;
+
+		allowNonExecutePrefix = false;
+		nameTable = null;
+		valueTable = null;
+		trackPaths = true;
+		trackLines = true;
+
+		pos = 0;
+		limit = 0;
+		bufferOffset = 0;
+		checkpoint = -1;
+		lineNumber = 0;
+		lineStart = 0;
+		peeked = PEEKED_NONE;
+		peekedNumberLength = 0;
+		peekedString = null;
+
+		Arrays.fill(pathNames, null);
+		Arrays.fill(pathIndices, 0);
+		stackSize = 0;
+		stack[stackSize++] = JsonScope.EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Like {@link #reset(Reader, JsonFormat)}, but reads the given string.
+	 */
+	public void reset(String in, JsonFormat format) {
+		reset(new StringReader(Objects.requireNonNull(in, "Input string cannot be null")), format);
+	}
+
+	/**
+	 * Like {@link #reset(Reader, JsonFormat)}, but reads a UTF-8 encoded stream.
+	 */
+	public void reset(InputStream in, JsonFormat format) {
+		reset(new Utf8Reader(Objects.requireNonNull(in, "Input stream cannot be null")), format);
+	}
+
+	/**
+	 * Like {@link #reset(Reader, JsonFormat)}, but reads UTF-8 encoded bytes. The array is not copied.
+	 */
+	public void reset(byte[] in, JsonFormat format) {
+		Objects.requireNonNull(in, "Input bytes cannot be null");
+		reset(new Utf8Reader(in, 0, in.length), format);
+	}
+
+	/**
+	 * Like {@link #reset(Reader, JsonFormat)}, but reads the remaining UTF-8 encoded bytes of a buffer.
+	 */
+	public void reset(ByteBuffer in, JsonFormat format) {
+		reset(new Utf8Reader(Objects.requireNonNull(in, "Input buffer cannot be null")), format);
 	}
 
 	/**
@@ -382,6 +684,58 @@ public final class JsonReader implements Closeable {
 		return allowNonExecutePrefix;
 	}
 
+	/**
+	 * Makes this reader take its read buffer from {@code pool}, and give it back once the reader is closed.
+	 * This must be called before parsing occurs.
+	 *
+	 * @param pool the pool to use, or null to allocate buffers normally.
+	 * @throws IllegalStateException if this reader has already read input.
+	 * @see BufferPool#threadLocal()
+	 */
+	public void setBufferPool(@Nullable BufferPool pool) {
+		if (buffer != null) {
+			throw new IllegalStateException("The buffer pool must be set before reading");
+		}
+		this.bufferPool = pool;
+	}
+
+	/**
+	 * Makes {@link #nextName()} return canonical instances from {@code table}, so that repeated keys don't
+	 * allocate a new string each time. One table may be shared between any number of readers.
+	 * Names with escape sequences are unescaped before they are looked up, so they are canonicalized too.
+	 *
+	 * @param table the table to use, or null to stop canonicalizing names.
+	 */
+	public void setSymbolTable(@Nullable JsonSymbolTable table) {
+		this.nameTable = table;
+	}
+
+	/**
+	 * Makes {@link #nextString()} return canonical instances from {@code table}. This suits documents that
+	 * repeat short values, such as {@code namespace:path} identifiers or enum constants. The table may be
+	 * the same one used for names.
+	 *
+	 * @param table the table to use, or null to stop canonicalizing string values.
+	 */
+	public void setValueSymbolTable(@Nullable JsonSymbolTable table) {
+		this.valueTable = table;
+	}
+
+	/**
+	 * Chooses how much of the current location this reader keeps up to date while reading. Readers track
+	 * everything by default; pipelines that never look at paths can turn that bookkeeping off.
+	 *
+	 * @throws IllegalStateException if reading has already started.
+	 * @see LocationTracking
+	 */
+	public void setLocationTracking(LocationTracking tracking) {
+		if (limit != 0 || stack[0] != JsonScope.EMPTY_DOCUMENT) {
+			throw new IllegalStateException("Location tracking must be set before reading");
+		}
+		this.trackPaths = tracking == LocationTracking.FULL;
+		this.trackLines = tracking != LocationTracking.NONE;
+	}
+
 	public JsonFormat getFormat() {
 		return format;
 	}
@@ -394,6 +748,62 @@ public final class JsonReader implements Closeable {
 		return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY;
 	}
 
+	/**
+	 * Returns true if the stream has another top-level value after the current one. Together with
+	 * {@link #beginDocument()}, this reads a stream of several documents, such as
+	 * <a href="https://jsonlines.org/">JSON Lines</a> or simply concatenated JSON, with a single reader:
+	 *
+	 * <pre>{@code
+	 * while (reader.hasNextDocument()) {
+	 *     reader.beginDocument();
+	 *     Record record = readRecord(reader);
+	 * }
+	 * }</pre>
+	 *
+	 * @throws IllegalStateException if this is called in the middle of a document.
+	 */
+	public boolean hasNextDocument() throws IOException {
+		assertBetweenDocuments();
+		int peekStack = stack[0];
+		if (peekStack == JsonScope.NEXT_DOCUMENT || peeked != PEEKED_NONE && peeked != PEEKED_EOF) {
+			return true; // the next document was begun or peeked, but not read yet
+		} else if (peeked == PEEKED_EOF) {
+			return false;
+		}
+
+		if (nextNonWhitespace(false) == -1) {
+			if (peekStack == JsonScope.NONEMPTY_DOCUMENT) {
+				peeked = PEEKED_EOF;
+			}
+			return false;
+		}
+		pos--;
+		return true;
+	}
+
+	/**
+	 * Starts reading the next top-level value of a stream of several documents. Without this, anything after
+	 * the first top-level value is a syntax error. Calling this before the first document is optional.
+	 *
+	 * @throws IllegalStateException if this is called in the middle of a document.
+	 * @see #hasNextDocument()
+	 */
+	public void beginDocument() throws IOException {
+		assertBetweenDocuments();
+		if (stack[0] == JsonScope.NONEMPTY_DOCUMENT && (peeked == PEEKED_NONE || peeked == PEEKED_EOF)) {
+			stack[0] = JsonScope.NEXT_DOCUMENT;
+			peeked = PEEKED_NONE;
+		}
+	}
+
+	private void assertBetweenDocuments() {
+		if (stack[0] == JsonScope.CLOSED) {
+			throw new IllegalStateException("JsonReader is closed");
+		} else if (stackSize != 1) {
+			throw new IllegalStateException("Expected to be between documents" + locationString());
+		}
+	}
+
 	/**
 	 * Returns the type of the next token without consuming it.
 	 */
@@ -453,19 +863,97 @@ public final class JsonReader implements Closeable {
 		}
 		String result;
 		if (p == PEEKED_UNQUOTED_NAME) {
-			result = nextUnquotedValue();
+			result = nextUnquotedValue(nameTable);
+		} else if (p == PEEKED_SINGLE_QUOTED_NAME) {
+			result = nextQuotedValue('\'', nameTable);
+		} else if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+			result = nextQuotedValue('"', nameTable);
+		} else {
+			throw new IllegalStateException("Expected a name but was " + peek() + locationString());
+		}
+		peeked = PEEKED_NONE;
+		if (trackPaths) {
+			pathNames[stackSize - 1] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the next token, a {@link JsonToken#NAME property name}, and
+	 * consumes it, without copying it into a new {@code String}. The returned
+	 * sequence is reused, and is only valid until this reader is next used;
+	 * call {@link Object#toString()} on it to keep it. It equals other views
+	 * with the same chars and hashes like the equal {@code String}, but is
+	 * never equal to a {@code String}: compare it with one through
+	 * {@link String#contentEquals(CharSequence)}.
+	 *
+	 * <p>As the name is never materialized, it is left out of {@link #path()}.
+	 *
+	 * @throws IOException if the next token in the stream is not a property
+	 *     name.
+	 */
+	public CharSequence nextNameView() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		CharSequence result;
+		if (p == PEEKED_UNQUOTED_NAME) {
+			result = nextUnquotedView();
 		} else if (p == PEEKED_SINGLE_QUOTED_NAME) {
-			result = nextQuotedValue('\'');
+			result = nextQuotedView('\'');
 		} else if (p == PEEKED_DOUBLE_QUOTED_NAME) {
-			result = nextQuotedValue('"');
+			result = nextQuotedView('"');
 		} else {
 			throw new IllegalStateException("Expected a name but was " + peek() + locationString());
 		}
 		peeked = PEEKED_NONE;
-		pathNames[stackSize - 1] = result;
+		if (trackPaths) {
+			pathNames[stackSize - 1] = null;
+		}
 		return result;
 	}
 
+	/**
+	 * If the next token is a {@link JsonToken#NAME property name} in
+	 * {@code options}, consumes it and returns its index. Otherwise, this
+	 * returns -1 and consumes nothing, so the name can still be read with
+	 * {@link #nextName()} or skipped. The name is compared straight from the
+	 * read buffer, so no string is allocated either way.
+	 *
+	 * <p>This suits hand-written deserializers, which can {@code switch} on the
+	 * index instead of comparing strings:
+	 * <pre>   {@code
+	 *
+	 *   private static final JsonReader.Options NAMES = JsonReader.Options.of("id", "text");
+	 *
+	 *   while (reader.hasNext()) {
+	 *     switch (reader.selectName(NAMES)) {
+	 *       case 0: id = reader.nextLong(); break;
+	 *       case 1: text = reader.nextString(); break;
+	 *       default: reader.nextName(); reader.skipValue();
+	 *     }
+	 *   }}</pre>
+	 */
+	public int selectName(Options options) throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p != PEEKED_UNQUOTED_NAME && p != PEEKED_SINGLE_QUOTED_NAME && p != PEEKED_DOUBLE_QUOTED_NAME) {
+			return -1;
+		}
+
+		int index = selectPeekedValue(options, p);
+		if (index >= 0) {
+			peeked = PEEKED_NONE;
+			if (trackPaths) {
+				pathNames[stackSize - 1] = options.strings[index];
+			}
+		}
+		return index;
+	}
+
 	/**
 	 * Consumes the next token from the JSON stream and asserts that it is the
 	 * beginning of a new object.
@@ -494,8 +982,10 @@ public final class JsonReader implements Closeable {
 		}
 		if (p == PEEKED_END_OBJECT) {
 			stackSize--;
-			pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
-			pathIndices[stackSize - 1]++;
+			if (trackPaths) {
+				pathNames[stackSize] = null; // Free the last path name so that it can be garbage collected!
+				pathIndices[stackSize - 1]++;
+			}
 			peeked = PEEKED_NONE;
 		} else {
 			throw new IllegalStateException("Expected END_OBJECT but was " + peek() + locationString());
@@ -513,7 +1003,9 @@ public final class JsonReader implements Closeable {
 		}
 		if (p == PEEKED_BEGIN_ARRAY) {
 			push(JsonScope.EMPTY_ARRAY);
-			pathIndices[stackSize - 1] = 0;
+			if (trackPaths) {
+				pathIndices[stackSize - 1] = 0;
+			}
 			peeked = PEEKED_NONE;
 		} else {
 			throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek() + locationString());
@@ -531,7 +1023,9 @@ public final class JsonReader implements Closeable {
 		}
 		if (p == PEEKED_END_ARRAY) {
 			stackSize--;
-			pathIndices[stackSize - 1]++;
+			if (trackPaths) {
+				pathIndices[stackSize - 1]++;
+			}
 			peeked = PEEKED_NONE;
 		} else {
 			throw new IllegalStateException("Expected END_ARRAY but was " + peek() + locationString());
@@ -553,11 +1047,11 @@ public final class JsonReader implements Closeable {
 		}
 		String result;
 		if (p == PEEKED_UNQUOTED) {
-			result = nextUnquotedValue();
+			result = nextUnquotedValue(valueTable);
 		} else if (p == PEEKED_SINGLE_QUOTED) {
-			result = nextQuotedValue('\'');
+			result = nextQuotedValue('\'', valueTable);
 		} else if (p == PEEKED_DOUBLE_QUOTED) {
-			result = nextQuotedValue('"');
+			result = nextQuotedValue('"', valueTable);
 		} else if (p == PEEKED_BUFFERED) {
 			result = peekedString;
 			peekedString = null;
@@ -568,62 +1062,268 @@ public final class JsonReader implements Closeable {
 			throw new IllegalStateException("Expected a string but was " + peek() + locationString());
 		}
 		peeked = PEEKED_NONE;
-		pathIndices[stackSize - 1]++;
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+		}
 		return result;
 	}
 
 	/**
-	 * Returns the {@link JsonToken#BOOLEAN boolean} value of the next token,
-	 * consuming it.
+	 * Returns the {@link JsonToken#STRING string} value of the next token,
+	 * consuming it, without copying it into a new {@code String}. If the next
+	 * token is a number, this returns its literal text. The returned sequence
+	 * is reused, and is only valid until this reader is next used; call
+	 * {@link Object#toString()} on it to keep it. It compares like the
+	 * sequence returned by {@link #nextNameView()}.
 	 *
-	 * @throws IllegalStateException if the next token is not a boolean or if
+	 * @throws IllegalStateException if the next token is not a string or if
 	 *     this reader is closed.
 	 */
-	public boolean nextBoolean() throws IOException {
+	public CharSequence nextStringView() throws IOException {
 		int p = peeked;
 		if (p == PEEKED_NONE) {
 			p = doPeek();
 		}
-		if (p == PEEKED_TRUE) {
-			peeked = PEEKED_NONE;
-			pathIndices[stackSize - 1]++;
-			return true;
-		} else if (p == PEEKED_FALSE) {
-			peeked = PEEKED_NONE;
+		CharSequence result;
+		if (p == PEEKED_UNQUOTED) {
+			result = nextUnquotedView();
+		} else if (p == PEEKED_SINGLE_QUOTED) {
+			result = nextQuotedView('\'');
+		} else if (p == PEEKED_DOUBLE_QUOTED) {
+			result = nextQuotedView('"');
+		} else if (p == PEEKED_BUFFERED) {
+			result = view.reset(peekedString.toCharArray(), 0, peekedString.length());
+			peekedString = null;
+		} else if (p == PEEKED_NUMBER || p == PEEKED_HEXADECIMAL || p == PEEKED_NaN || p == PEEKED_INF || p == PEEKED_NEGATIVE_INF) {
+			result = view.reset(buffer, pos, peekedNumberLength);
+			pos += peekedNumberLength;
+		} else {
+			throw new IllegalStateException("Expected a string but was " + peek() + locationString());
+		}
+		peeked = PEEKED_NONE;
+		if (trackPaths) {
 			pathIndices[stackSize - 1]++;
-			return false;
 		}
-		throw new IllegalStateException("Expected a boolean but was " + peek() + locationString());
+		return result;
 	}
 
 	/**
-	 * Returns the {@link JsonToken#NUMBER long} value of the next token,
-	 * consuming it. If the next token is a string, this method will attempt to
-	 * parse it as a long. If the next token's numeric value cannot be exactly
-	 * represented by a Java {@code long}, this method throws.
+	 * Returns a {@link Reader} over the {@link JsonToken#STRING string} value
+	 * of the next token, consuming it. Quoted strings are unescaped a read
+	 * buffer at a time as the returned reader is read, so a value of any length
+	 * can be passed on, for example to {@link JsonWriter#value(Reader)}, in
+	 * constant memory. If the next token is a number or an unquoted string,
+	 * the reader is over its text.
 	 *
-	 * @throws IllegalStateException if the next token is not a literal value.
-	 * @throws NumberFormatException if the next literal value cannot be parsed
-	 *     as a number, or exactly represented as a long.
+	 * <p>This reader must not be used again until the returned one has been
+	 * read to its end or closed, which leaves it just past the closing quote.
+	 *
+	 * @throws IllegalStateException if the next token is not a string or if
+	 *     this reader is closed.
 	 */
-	public Number nextNumber() throws IOException {
+	public Reader nextStringReader() throws IOException {
 		int p = peeked;
 		if (p == PEEKED_NONE) {
 			p = doPeek();
 		}
+		if (p != PEEKED_SINGLE_QUOTED && p != PEEKED_DOUBLE_QUOTED) {
+			return new StringReader(nextString());
+		}
 
-		boolean negateHex = false;
-		if (p == PEEKED_NUMBER) {
-			if (buffer[pos] == '+') {
-				peekedString = new String(buffer, pos + 1, peekedNumberLength - 1);
-			} else {
-				peekedString = new String(buffer, pos, peekedNumberLength);
-			}
-		} else if (p == PEEKED_HEXADECIMAL) {
-			if (buffer[pos] == '+') {
-				peekedString = new String(buffer, pos + 3, peekedNumberLength - 3);
-			} else if (buffer[pos] == '-') {
-				negateHex = true;
+		peeked = PEEKED_NONE;
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+		}
+		return new StringValueReader(p == PEEKED_SINGLE_QUOTED ? '\'' : '"');
+	}
+
+	/**
+	 * Returns the bytes encoded by the next {@link JsonToken#STRING string}
+	 * as standard Base64, consuming it. The value is decoded straight from the
+	 * read buffer. Padding is optional, and line breaks are skipped.
+	 *
+	 * @throws IllegalStateException if the next token is not a string or if
+	 *     this reader is closed.
+	 * @throws IllegalArgumentException if the string is not valid Base64.
+	 */
+	public byte[] nextBinary() throws IOException {
+		expectString();
+		CharSequence value = nextStringView();
+		char[] chars;
+		int offset;
+		if (value instanceof CharView) {
+			chars = ((CharView) value).array();
+			offset = ((CharView) value).offset();
+		} else {
+			chars = value.toString().toCharArray();
+			offset = 0;
+		}
+
+		int length = value.length();
+		byte[] bytes = new byte[Base64Codec.decodedLength(chars, offset, length)];
+		Base64Codec.Decoder decoder = new Base64Codec.Decoder();
+		try {
+			int n = decoder.decode(chars, offset, length, bytes, 0);
+			n += decoder.finish(bytes, n);
+			return n == bytes.length ? bytes : Arrays.copyOf(bytes, n);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(e.getMessage() + locationString());
+		}
+	}
+
+	/**
+	 * Decodes the next {@link JsonToken#STRING string} like {@link #nextBinary()},
+	 * consuming it, and writes the bytes to {@code out} as they are decoded, so
+	 * that a value of any length is passed on in constant memory. The stream is
+	 * not closed.
+	 *
+	 * @return the number of bytes written.
+	 * @throws IllegalStateException if the next token is not a string or if
+	 *     this reader is closed.
+	 * @throws IllegalArgumentException if the string is not valid Base64. What
+	 *     came before the invalid part has already been written.
+	 */
+	public long nextBinary(OutputStream out) throws IOException {
+		Objects.requireNonNull(out, "Output stream cannot be null");
+		expectString();
+		char[] chars = new char[BINARY_CHUNK_SIZE];
+		byte[] bytes = new byte[BINARY_CHUNK_SIZE / 4 * 3 + 2];
+		Base64Codec.Decoder decoder = new Base64Codec.Decoder();
+		long total = 0;
+		try (Reader value = nextStringReader()) {
+			for (int read; (read = value.read(chars, 0, chars.length)) != -1; ) {
+				int n = decoder.decode(chars, 0, read, bytes, 0);
+				out.write(bytes, 0, n);
+				total += n;
+			}
+			int n = decoder.finish(bytes, 0);
+			out.write(bytes, 0, n);
+			return total + n;
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(e.getMessage() + locationString());
+		}
+	}
+
+	private void expectString() throws IOException {
+		JsonToken token = peek();
+		if (token != JsonToken.STRING) {
+			throw new IllegalStateException("Expected a string but was " + token + locationString());
+		}
+	}
+
+	/**
+	 * If the next token is a {@link JsonToken#STRING string} in
+	 * {@code options}, consumes it and returns its index. Otherwise, this
+	 * returns -1 and consumes nothing. Like {@link #selectName(Options)}, the
+	 * value is compared straight from the read buffer, which makes this a cheap
+	 * way to read enum constants.
+	 */
+	public int selectString(Options options) throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		int index;
+		if (p == PEEKED_BUFFERED) {
+			index = options.indexOf(peekedString);
+			if (index >= 0) {
+				peekedString = null;
+			}
+		} else if (p == PEEKED_UNQUOTED || p == PEEKED_SINGLE_QUOTED || p == PEEKED_DOUBLE_QUOTED) {
+			index = selectPeekedValue(options, p);
+		} else {
+			return -1;
+		}
+
+		if (index >= 0) {
+			peeked = PEEKED_NONE;
+			if (trackPaths) {
+				pathIndices[stackSize - 1]++;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the literal text of the next {@link JsonToken#NUMBER number},
+	 * consuming it, so that it can be handed to a custom number parser. The
+	 * text is exactly as written, including any sign, hexadecimal prefix or
+	 * JSON5 special value. The returned sequence is reused, and is only valid
+	 * until this reader is next used. It compares like the sequence returned by
+	 * {@link #nextNameView()}.
+	 *
+	 * @throws IllegalStateException if the next token is not a number.
+	 */
+	public CharSequence nextNumberView() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p != PEEKED_NUMBER && p != PEEKED_HEXADECIMAL && p != PEEKED_NaN && p != PEEKED_INF && p != PEEKED_NEGATIVE_INF) {
+			throw new IllegalStateException("Expected a number but was " + peek() + locationString());
+		}
+		CharSequence result = view.reset(buffer, pos, peekedNumberLength);
+		consumePeekedNumber();
+		return result;
+	}
+
+	/**
+	 * Returns the {@link JsonToken#BOOLEAN boolean} value of the next token,
+	 * consuming it.
+	 *
+	 * @throws IllegalStateException if the next token is not a boolean or if
+	 *     this reader is closed.
+	 */
+	public boolean nextBoolean() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_TRUE) {
+			peeked = PEEKED_NONE;
+			if (trackPaths) {
+				pathIndices[stackSize - 1]++;
+			}
+			return true;
+		} else if (p == PEEKED_FALSE) {
+			peeked = PEEKED_NONE;
+			if (trackPaths) {
+				pathIndices[stackSize - 1]++;
+			}
+			return false;
+		}
+		throw new IllegalStateException("Expected a boolean but was " + peek() + locationString());
+	}
+
+	/**
+	 * Returns the {@link JsonToken#NUMBER long} value of the next token,
+	 * consuming it. If the next token is a string, this method will attempt to
+	 * parse it as a long. If the next token's numeric value cannot be exactly
+	 * represented by a Java {@code long}, this method throws.
+	 *
+	 * @throws IllegalStateException if the next token is not a literal value.
+	 * @throws NumberFormatException if the next literal value cannot be parsed
+	 *     as a number, or exactly represented as a long.
+	 */
+	public Number nextNumber() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		boolean negateHex = false;
+		if (p == PEEKED_NUMBER) {
+			if (buffer[pos] == '+') {
+				peekedString = new String(buffer, pos + 1, peekedNumberLength - 1);
+			} else {
+				peekedString = new String(buffer, pos, peekedNumberLength);
+			}
+		} else if (p == PEEKED_HEXADECIMAL) {
+			if (buffer[pos] == '+') {
+				peekedString = new String(buffer, pos + 3, peekedNumberLength - 3);
+			} else if (buffer[pos] == '-') {
+				negateHex = true;
 				peekedString = new String(buffer, pos + 3, peekedNumberLength - 3);
 			} else {
 				peekedString = new String(buffer, pos + 2, peekedNumberLength - 2);
@@ -631,14 +1331,16 @@ public final class JsonReader implements Closeable {
 		} else if (p == PEEKED_SINGLE_QUOTED || p == PEEKED_DOUBLE_QUOTED || p == PEEKED_UNQUOTED) {
 			checkLenient(); // using this to catch where this is used, TODO remove
 			if (p == PEEKED_UNQUOTED) {
-				peekedString = nextUnquotedValue();
+				peekedString = nextUnquotedValue(null);
 			} else {
-				peekedString = nextQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"');
+				peekedString = nextQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"', null);
 			}
 			try {
 				Number result = new BigInteger(peekedString);
 				peeked = PEEKED_NONE;
-				pathIndices[stackSize - 1]++;
+				if (trackPaths) {
+					pathIndices[stackSize - 1]++;
+				}
 				pos += peekedNumberLength;
 				return result;
 			} catch (NumberFormatException ignored) {
@@ -675,7 +1377,9 @@ public final class JsonReader implements Closeable {
 		}
 		peekedString = null;
 		peeked = PEEKED_NONE;
-		pathIndices[stackSize - 1]++;
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+		}
 		pos += peekedNumberLength;
 		peekedNumberLength = 0;
 		return result;
@@ -691,9 +1395,44 @@ public final class JsonReader implements Closeable {
 	 *     as a double, or is non-finite.
 	 */
 	public double nextDouble() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		if (p == PEEKED_NUMBER) {
+			double result = doubleParser.parseDouble(buffer, pos, peekedNumberLength);
+			consumePeekedNumber();
+			return result;
+		}
+
 		return nextNumber().doubleValue();
 	}
 
+	/**
+	 * Returns the {@link JsonToken#NUMBER float} value of the next token,
+	 * consuming it. The literal is rounded directly to the nearest float,
+	 * rather than going through a double first.
+	 *
+	 * @throws IllegalStateException if the next token is not a literal value.
+	 * @throws NumberFormatException if the next literal value cannot be parsed
+	 *     as a float.
+	 */
+	public float nextFloat() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		if (p == PEEKED_NUMBER) {
+			float result = doubleParser.parseFloat(buffer, pos, peekedNumberLength);
+			consumePeekedNumber();
+			return result;
+		}
+
+		return nextNumber().floatValue();
+	}
+
 	/**
 	 * Returns the {@link JsonToken#NUMBER long} value of the next token,
 	 * consuming it. If the next token is a string, this method will attempt to
@@ -705,6 +1444,16 @@ public final class JsonReader implements Closeable {
 	 *     as a number, or exactly represented as a long.
 	 */
 	public long nextLong() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		if ((p == PEEKED_NUMBER || p == PEEKED_HEXADECIMAL) && decodePeekedLong(p)) {
+			consumePeekedNumber();
+			return peekedLong;
+		}
+
 		Number num = nextNumber();
 		if (num instanceof BigInteger) {
 			return ((BigInteger) num).longValueExact();
@@ -724,6 +1473,18 @@ public final class JsonReader implements Closeable {
 	 *     as a number, or exactly represented as an int.
 	 */
 	public int nextInt() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		// Values outside the int range take the slow path, so that they fail the same way they always have
+		if ((p == PEEKED_NUMBER || p == PEEKED_HEXADECIMAL) && decodePeekedLong(p)
+				&& peekedLong >= Integer.MIN_VALUE && peekedLong <= Integer.MAX_VALUE) {
+			consumePeekedNumber();
+			return (int) peekedLong;
+		}
+
 		Number num = nextNumber();
 		if (num instanceof BigInteger) {
 			return ((BigInteger) num).intValueExact();
@@ -746,7 +1507,9 @@ public final class JsonReader implements Closeable {
 		}
 		if (p == PEEKED_NULL) {
 			peeked = PEEKED_NONE;
-			pathIndices[stackSize - 1]++;
+			if (trackPaths) {
+				pathIndices[stackSize - 1]++;
+			}
 		} else {
 			throw new IllegalStateException("Expected null but was " + peek() + locationString());
 		}
@@ -789,14 +1552,192 @@ public final class JsonReader implements Closeable {
 			peeked = PEEKED_NONE;
 		} while (count != 0);
 
-		pathIndices[stackSize - 1]++;
-		pathNames[stackSize - 1] = "null";
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+			pathNames[stackSize - 1] = "null";
+		}
+	}
+
+	/**
+	 * Skips the next value like {@link #skipValue()}, but scans through objects and arrays without tokenizing
+	 * their contents. Only the structure the scan relies on is checked: brackets must be balanced, and strings
+	 * and comments must be terminated and allowed by the reader's {@link JsonFormat}. Other syntax errors
+	 * inside a skipped object or array, like a missing comma, go unreported.
+	 *
+	 * <p>This is much faster than {@code skipValue()} for large values, and is intended for skipping over
+	 * parts of trusted input that are of no interest.
+	 */
+	public void skipValueFast() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		if (p != PEEKED_BEGIN_ARRAY && p != PEEKED_BEGIN_OBJECT) {
+			skipValue();
+			return;
+		}
+
+		peeked = PEEKED_NONE;
+		skipContainer(p == PEEKED_BEGIN_OBJECT);
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+			pathNames[stackSize - 1] = "null";
+		}
+	}
+
+	/**
+	 * Returns a sequential stream of the remaining elements of the array this reader is in, each of which is
+	 * read by {@code decoder} only when the stream pulls it, so filtering and aggregation happen as the array is
+	 * parsed rather than over a list of every element. Once the stream has read the last element, it also
+	 * consumes the end of the array.
+	 *
+	 * <p>Closing the stream skips any elements it has not read with {@link #skipValueFast()} and consumes the
+	 * end of the array, so after a short-circuiting operation the reader is left just past the array:
+	 *
+	 * <pre>{@code
+	 * reader.beginArray();
+	 * try (Stream<Mod> mods = reader.stream(Mod::decode)) {
+	 *     first = mods.filter(Mod::isEnabled).findFirst();
+	 * }
+	 * }</pre>
+	 *
+	 * <p>The reader must not be used for anything else until the stream has been closed or fully consumed.
+	 * {@link IOException}s thrown while reading are rethrown as {@link UncheckedIOException}s.
+	 *
+	 * @throws IllegalStateException if the reader is not in an array.
+	 */
+	public <T> Stream<T> stream(JsonDecoder<? extends T> decoder) {
+		Objects.requireNonNull(decoder, "Decoder cannot be null");
+		int scope = stack[stackSize - 1];
+		if (scope != JsonScope.EMPTY_ARRAY && scope != JsonScope.NONEMPTY_ARRAY) {
+			throw new IllegalStateException("Expected to be in an array" + locationString());
+		}
+
+		ElementSpliterator<T> elements = new ElementSpliterator<>(decoder);
+		return StreamSupport.stream(elements, false).onClose(elements::finish);
+	}
+
+	/**
+	 * Advances past the end of the object or array whose opening bracket has just been consumed.
+	 */
+	private void skipContainer(boolean object) throws IOException {
+		// One bit per nesting level, set for objects and clear for arrays
+		long[] scopes = skipScopes;
+		if (scopes == null) {
+			scopes = skipScopes = new long[1];
+		}
+		int depth = 0;
+		scopes[0] = object ? 1 : 0;
+
+		char[] buffer = this.buffer;
+		int p = pos;
+		int l = limit;
+		while (true) {
+			if (p == l) {
+				pos = p;
+				if (!fillBuffer(1)) {
+					throw syntaxError((scopes[depth >>> 6] & 1L << depth) != 0 ? "Unterminated object" : "Unterminated array");
+				}
+				buffer = this.buffer;
+				p = pos;
+				l = limit;
+			}
+
+			// Everything but brackets, quotes, slashes and newlines is passed over
+			p = SCANNER.skipToStructural(buffer, p, l);
+			if (p == l) {
+				continue;
+			}
+			char c = buffer[p++];
+
+			switch (c) {
+				case '\n':
+					if (trackLines) {
+						lineNumber++;
+						lineStart = p;
+					}
+					break;
+
+				case '\'':
+				case '"':
+					if (c == '\'') {
+						assertJson5();
+					}
+					pos = p;
+					skipQuotedValue(c);
+					buffer = this.buffer;
+					p = pos;
+					l = limit;
+					break;
+
+				case '/':
+					if (p == l) {
+						pos = p - 1; // keep the '/' in the buffer while looking past it
+						boolean charsLoaded = fillBuffer(2);
+						buffer = this.buffer;
+						p = pos + 1;
+						l = limit;
+						if (!charsLoaded) {
+							break;
+						}
+					}
+
+					if (buffer[p] == '*') {
+						assertJsonc();
+						pos = p + 1;
+						if (!skipTo("*/")) {
+							throw syntaxError("Unterminated comment");
+						}
+						p = pos + 2;
+					} else if (buffer[p] == '/') {
+						assertJsonc();
+						pos = p + 1;
+						skipToEndOfLine();
+						p = pos;
+					} else {
+						break;
+					}
+					buffer = this.buffer;
+					l = limit;
+					break;
+
+				case '[':
+				case '{':
+					if (++depth >>> 6 == scopes.length) {
+						scopes = skipScopes = Arrays.copyOf(scopes, scopes.length * 2);
+					}
+					if (c == '{') {
+						scopes[depth >>> 6] |= 1L << depth;
+					} else {
+						scopes[depth >>> 6] &= ~(1L << depth);
+					}
+					break;
+
+				case ']':
+				case '}':
+					boolean inObject = (scopes[depth >>> 6] & 1L << depth) != 0;
+					if (inObject != (c == '}')) {
+						pos = p;
+						throw syntaxError(inObject ? "Unterminated object" : "Unterminated array");
+					}
+					if (depth-- == 0) {
+						pos = p;
+						return;
+					}
+					break;
+			}
+		}
 	}
 
 	/**
-	 * @return a <a href="http://goessner.net/articles/JsonPath/">JsonPath</a> to the current location in the input JSON.
+	 * @return a <a href="http://goessner.net/articles/JsonPath/">JsonPath</a> to the current location in the input JSON,
+	 *     or {@value #UNTRACKED_PATH} if this reader doesn't {@linkplain LocationTracking#FULL track paths}.
 	 */
 	public String path() {
+		if (!trackPaths) {
+			return UNTRACKED_PATH;
+		}
 		StringBuilder result = new StringBuilder().append('$');
 		for (int i = 0, size = stackSize; i < size; i++) {
 			switch (stack[i]) {
@@ -816,6 +1757,7 @@ public final class JsonReader implements Closeable {
 
 			case JsonScope.NONEMPTY_DOCUMENT:
 			case JsonScope.EMPTY_DOCUMENT:
+			case JsonScope.NEXT_DOCUMENT:
 			case JsonScope.CLOSED:
 				break;
 			}
@@ -830,6 +1772,10 @@ public final class JsonReader implements Closeable {
 		peeked = PEEKED_NONE;
 		stack[0] = JsonScope.CLOSED;
 		stackSize = 1;
+		if (buffer != null && bufferPool != null) {
+			bufferPool.release(buffer);
+			buffer = null;
+		}
 		in.close();
 	}
 
@@ -911,6 +1857,11 @@ public final class JsonReader implements Closeable {
 					throw syntaxError("Expected ':'");
 			}
 		} else if (peekStack == JsonScope.EMPTY_DOCUMENT) {
+			// fillBuffer() skips a byte order mark as it is first read, but rewind() can go back to before it
+			if (bufferOffset + pos == 0 && limit > 0 && buffer[0] == '\ufeff') {
+				pos = 1;
+				lineStart = 1;
+			}
 			if (allowNonExecutePrefix) {
 				consumeNonExecutePrefix();
 			}
@@ -923,6 +1874,8 @@ public final class JsonReader implements Closeable {
 				checkLenient();
 				pos--;
 			}
+		} else if (peekStack == JsonScope.NEXT_DOCUMENT) {
+			stack[stackSize - 1] = JsonScope.NONEMPTY_DOCUMENT;
 		} else if (peekStack == JsonScope.CLOSED) {
 			throw new IllegalStateException("JsonReader is closed");
 		}
@@ -968,6 +1921,44 @@ public final class JsonReader implements Closeable {
 		return peeked = PEEKED_UNQUOTED;
 	}
 
+	/**
+	 * Returns the offset of the first char of the next token from the start of the input, peeking it if
+	 * necessary. For strings and names, this is the offset of the opening quote.
+	 */
+	long peekedStart() throws IOException {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+
+		switch (p) {
+		case PEEKED_TRUE:
+		case PEEKED_NULL:
+			return bufferOffset + pos - 4; // peekKeyword() consumed the keyword
+		case PEEKED_FALSE:
+			return bufferOffset + pos - 5;
+		case PEEKED_BEGIN_OBJECT:
+		case PEEKED_END_OBJECT:
+		case PEEKED_BEGIN_ARRAY:
+		case PEEKED_END_ARRAY:
+		case PEEKED_SINGLE_QUOTED:
+		case PEEKED_DOUBLE_QUOTED:
+		case PEEKED_SINGLE_QUOTED_NAME:
+		case PEEKED_DOUBLE_QUOTED_NAME:
+			return bufferOffset + pos - 1;
+		default:
+			return bufferOffset + pos;
+		}
+	}
+
+	/**
+	 * Returns the offset of the next unread char from the start of the input. Right after a token has been
+	 * consumed, this is the offset just past its last char.
+	 */
+	long position() {
+		return bufferOffset + pos;
+	}
+
 	private int peekKeyword() throws IOException {
 		// Figure out which keyword we're matching against by its first character.
 		char c = buffer[pos];
@@ -1026,14 +2017,11 @@ public final class JsonReader implements Closeable {
 		charactersOfNumber:
 		for (; true; i++) {
 			if (p + i == l) {
-				if (i == buffer.length) {
-					// Though this looks like a well-formed number, it's too long to continue reading. Give up
-					// and let the application handle this as an unquoted literal.
-					return PEEKED_NONE;
-				}
+				// This grows the buffer if the number is longer than it
 				if (!fillBuffer(i + 1)) {
 					break;
 				}
+				buffer = this.buffer;
 				p = pos;
 				l = limit;
 			}
@@ -1052,7 +2040,7 @@ public final class JsonReader implements Closeable {
 				case 'N':
 					// NaN json5 only
 					assertJson5();
-					if ((last == NUMBER_CHAR_NONE) && literal(buffer, p + i, "NaN", true)) {
+					if ((last == NUMBER_CHAR_NONE) && literal(i, "NaN")) {
 						peekedNumberLength = i + 3;
 						return peeked = PEEKED_NaN;
 					}
@@ -1060,10 +2048,14 @@ public final class JsonReader implements Closeable {
 				case 'I':
 					// Infinity json5 only
 					assertJson5();
-					if ((last == NUMBER_CHAR_NONE || last == NUMBER_CHAR_SIGN) && literal(buffer, p + i, "Infinity", true)) {
+					if ((last == NUMBER_CHAR_NONE || last == NUMBER_CHAR_SIGN) && literal(i, "Infinity")) {
 						peekedNumberLength = i + 8;
 						return peeked = last == NUMBER_CHAR_NONE ? PEEKED_INF : PEEKED_NEGATIVE_INF;
 					}
+					// literal() may have refilled the buffer
+					buffer = this.buffer;
+					p = pos;
+					l = limit;
 				case '+':
 					if (last == NUMBER_CHAR_EXP_E) {
 						last = NUMBER_CHAR_EXP_SIGN;
@@ -1146,30 +2138,108 @@ public final class JsonReader implements Closeable {
 			}
 		}
 
-		if (last == NUMBER_CHAR_HEXADECIMAL) {
-			peekedNumberLength = i;
-			return peeked = PEEKED_HEXADECIMAL;
+		if (last == NUMBER_CHAR_HEXADECIMAL) {
+			peekedNumberLength = i;
+			return peeked = PEEKED_HEXADECIMAL;
+		}
+		// We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
+		if (last == NUMBER_CHAR_ZERO || last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT
+				|| last == NUMBER_CHAR_EXP_DIGIT || isJson5(last == NUMBER_CHAR_DECIMAL)) { // JSON5 allows trailing decimal
+			peekedNumberLength = i;
+			return peeked = PEEKED_NUMBER;
+		} else {
+			throw syntaxError("unable to parse number");
+		}
+	}
+
+	/**
+	 * Decodes the peeked number literal as a long directly from the buffer,
+	 * storing the result in {@link #peekedLong}. This does not consume the literal.
+	 *
+	 * @return false if the literal has a fraction or an exponent, has no
+	 *     digits, or overflows a long; callers should fall back to
+	 *     {@link #nextNumber()}.
+	 */
+	private boolean decodePeekedLong(int p) {
+		char[] buffer = this.buffer;
+		int i = pos;
+		int end = i + peekedNumberLength;
+
+		boolean negative = false;
+		if (buffer[i] == '-') {
+			negative = true;
+			i++;
+		} else if (buffer[i] == '+') {
+			i++;
+		}
+
+		int radix = 10;
+		if (p == PEEKED_HEXADECIMAL) {
+			radix = 16;
+			i += 2; // skip the 0x
+		}
+		if (i == end) {
+			return false; // no digits, which nextNumber() rejects
+		}
+
+		// Accumulate the value negatively, so that Long.MIN_VALUE can be represented
+		long minBeforeShift = Long.MIN_VALUE / radix;
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(buffer[i], radix);
+			if (digit < 0 || value < minBeforeShift) {
+				return false;
+			}
+			long shifted = value * radix;
+			long newValue = shifted - digit;
+			if (newValue > shifted) {
+				return false; // overflowed past Long.MIN_VALUE
+			}
+			value = newValue;
+		}
+
+		if (!negative) {
+			if (value == Long.MIN_VALUE) {
+				return false;
+			}
+			value = -value;
+		}
+		peekedLong = value;
+		return true;
+	}
+
+	/**
+	 * Consumes a peeked number literal that has been decoded without going through {@link #nextNumber()}.
+	 */
+	private void consumePeekedNumber() {
+		peeked = PEEKED_NONE;
+		if (trackPaths) {
+			pathIndices[stackSize - 1]++;
+		}
+		pos += peekedNumberLength;
+		peekedNumberLength = 0;
+	}
+
+	/**
+	 * Returns true if {@code text} appears {@code offset} chars past {@code pos}, and is followed by the end of
+	 * the input or a non-literal character. This may refill the buffer.
+	 */
+	private boolean literal(int offset, String text) throws IOException {
+		int end = offset + text.length();
+		if (pos + end >= limit) {
+			fillBuffer(end + 1);
 		}
-		// We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
-		if (last == NUMBER_CHAR_ZERO || last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT
-				|| last == NUMBER_CHAR_EXP_DIGIT || isJson5(last == NUMBER_CHAR_DECIMAL)) { // JSON5 allows trailing decimal
-			peekedNumberLength = i;
-			return peeked = PEEKED_NUMBER;
-		} else {
-			throw syntaxError("unable to parse number");
+		if (pos + end > limit) {
+			return false;
 		}
-	}
 
-	private boolean literal(char[] chars, int idx, String text, boolean thenEnd) throws IOException {
-		char[] expected = text.toCharArray();
-		int end = text.length();
-		for (int i = 0; i < end; i++) {
-			if (expected[i] != chars[i + idx]) {
+		for (int i = 0; i < text.length(); i++) {
+			if (buffer[pos + offset + i] != text.charAt(i)) {
 				return false;
 			}
 		}
 
-		return !thenEnd || !isLiteral(chars[idx + text.length()]);
+		return pos + end == limit || !isLiteral(buffer[pos + end]);
 	}
 
 	private boolean isLiteral(char c) throws IOException {
@@ -1203,91 +2273,107 @@ public final class JsonReader implements Closeable {
 	 * should have already been read. This consumes the closing quote, but does
 	 * not include it in the returned string.
 	 *
+	 * <p>Values with escapes, or that are split by a refill, are gathered in
+	 * {@link #scratch}, so the only allocation is the returned string.
+	 *
+	 * @param quote either ' or ".
+	 * @param symbols the table to canonicalize the value with, if any.
+	 * @throws NumberFormatException if any unicode escape sequences are
+	 *     malformed.
+	 */
+	private String nextQuotedValue(char quote, @Nullable JsonSymbolTable symbols) throws IOException {
+		CharView value = nextQuotedView(quote);
+		if (symbols != null) {
+			return symbols.lookup(value.array(), value.offset(), value.length());
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Returns a view of the string up to but not including {@code quote},
+	 * unescaping any character escape sequences encountered along the way. The
+	 * view points straight into the buffer when the value has no escapes and
+	 * isn't split by a refill, and into {@link #scratch} otherwise. This
+	 * consumes the closing quote, but does not include it in the view.
+	 *
 	 * @param quote either ' or ".
 	 * @throws NumberFormatException if any unicode escape sequences are
 	 *     malformed.
 	 */
-	private String nextQuotedValue(char quote) throws IOException {
+	private CharView nextQuotedView(char quote) throws IOException {
 		// Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
 		char[] buffer = this.buffer;
-		StringBuilder builder = null;
+		int p = pos;
+		int l = limit;
+		/* the index of the first character not yet copied to the scratch buffer. */
+		int start = p;
+		/* the number of characters in the scratch buffer, or -1 if it isn't used yet. */
+		int length = -1;
 		while (true) {
-			int p = pos;
-			int l = limit;
-			/* the index of the first character not yet appended to the builder. */
-			int start = p;
-			while (p < l) {
+			while ((p = SCANNER.skipStringContent(buffer, p, l)) < l) {
 				int c = buffer[p++];
 
 				if (c == quote) {
 					pos = p;
 					int len = p - start - 1;
-					if (builder == null) {
-						return new String(buffer, start, len);
-					} else {
-						builder.append(buffer, start, len);
-						return builder.toString();
+					if (length < 0) {
+						return view.reset(buffer, start, len);
 					}
+					length = appendToScratch(length, buffer, start, len);
+					return view.reset(scratch, 0, length);
 				} else if (c == '\\') {
 					pos = p;
-					int len = p - start - 1;
-					if (builder == null) {
-						int estimatedLength = (len + 1) * 2;
-						builder = new StringBuilder(Math.max(estimatedLength, 16));
-					}
-					builder.append(buffer, start, len);
-					builder.append(readEscapeCharacter());
+					length = appendToScratch(Math.max(length, 0), buffer, start, p - start - 1);
+					char escaped = readEscapeCharacter();
+					length = appendToScratch(length, escaped);
+					buffer = this.buffer;
 					p = pos;
 					l = limit;
 					start = p;
-				} else if (c == '\n') {
+				} else if (c == '\n' && trackLines) {
 					lineNumber++;
 					lineStart = p;
 				}
 			}
 
-			if (builder == null) {
-				int estimatedLength = (p - start) * 2;
-				builder = new StringBuilder(Math.max(estimatedLength, 16));
-			}
-			builder.append(buffer, start, p - start);
+			length = appendToScratch(Math.max(length, 0), buffer, start, p - start);
 			pos = p;
 			if (!fillBuffer(1)) {
 				throw syntaxError("Unterminated string");
 			}
+			buffer = this.buffer;
+			p = pos;
+			l = limit;
+			start = p;
 		}
 	}
 
 	/**
-	 * Returns an unquoted value as a string.
+	 * Returns an unquoted value as a string, canonicalized with {@code symbols}
+	 * if there is one.
 	 */
-	@SuppressWarnings("fallthrough")
-	private String nextUnquotedValue() throws IOException {
-		StringBuilder builder = null;
+	private String nextUnquotedValue(@Nullable JsonSymbolTable symbols) throws IOException {
+		CharView value = nextUnquotedView();
+		if (symbols != null) {
+			return symbols.lookup(value.array(), value.offset(), value.length());
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Returns a view of an unquoted value. The whole literal is loaded into
+	 * the buffer when it fits, and is copied to {@link #scratch} otherwise.
+	 */
+	private CharView nextUnquotedView() throws IOException {
+		/* the number of characters in the scratch buffer, or -1 if it isn't used yet. */
+		int length = -1;
 		int i = 0;
 
 		findNonLiteralCharacter:
 		while (true) {
 			for (; pos + i < limit; i++) {
-				switch (buffer[pos + i]) {
-//					case '/':
-//					case '\\':
-//					case ';':
-//					case '#':
-//					case '=':
-//						checkNotStrict(); // fall-through
-					case '{':
-					case '}':
-					case '[':
-					case ']':
-					case ':':
-					case ',':
-					case ' ':
-					case '\t':
-					case '\f':
-					case '\r':
-					case '\n':
-						break findNonLiteralCharacter;
+				if (endsUnquotedValue(buffer[pos + i])) {
+					break findNonLiteralCharacter;
 				}
 			}
 
@@ -1300,11 +2386,8 @@ public final class JsonReader implements Closeable {
 				}
 			}
 
-			// use a StringBuilder when the value is too long. This is too long to be a number!
-			if (builder == null) {
-				builder = new StringBuilder(Math.max(i,16));
-			}
-			builder.append(buffer, pos, i);
+			// use the scratch buffer when the value is too long. This is too long to be a number!
+			length = appendToScratch(Math.max(length, 0), buffer, pos, i);
 			pos += i;
 			i = 0;
 			if (!fillBuffer(1)) {
@@ -1312,19 +2395,127 @@ public final class JsonReader implements Closeable {
 			}
 		}
 
-		String result = (null == builder) ? new String(buffer, pos, i) : builder.append(buffer, pos, i).toString();
+		CharView result;
+		if (length < 0) {
+			result = view.reset(buffer, pos, i);
+		} else {
+			length = appendToScratch(length, buffer, pos, i);
+			result = view.reset(scratch, 0, length);
+		}
 		pos += i;
 		return result;
 	}
 
+	/**
+	 * Returns true if {@code c} is the first character after an unquoted value.
+	 */
+	@SuppressWarnings("fallthrough")
+	private static boolean endsUnquotedValue(char c) {
+		switch (c) {
+//			case '/':
+//			case '\\':
+//			case ';':
+//			case '#':
+//			case '=':
+//				checkNotStrict(); // fall-through
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+			case ':':
+			case ',':
+			case ' ':
+			case '\t':
+			case '\f':
+			case '\r':
+			case '\n':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Returns the index of the peeked quoted or unquoted value in
+	 * {@code options}, consuming it if there is a match. On a miss, nothing is
+	 * consumed. Either way, the value is never copied into a new string.
+	 */
+	private int selectPeekedValue(Options options, int p) throws IOException {
+		if (p == PEEKED_UNQUOTED || p == PEEKED_UNQUOTED_NAME) {
+			// Load the whole literal, so that it can be compared in place
+			int i = 0;
+			while ((pos + i < limit || fillBuffer(i + 1)) && !endsUnquotedValue(buffer[pos + i])) {
+				i++;
+			}
+			int index = options.indexOf(buffer, pos, i);
+			if (index >= 0) {
+				pos += i;
+			}
+			return index;
+		}
+
+		char quote = p == PEEKED_SINGLE_QUOTED || p == PEEKED_SINGLE_QUOTED_NAME ? '\'' : '"';
+		// Load everything up to the closing quote, so that reading the value can't refill the buffer and
+		// a miss can be undone by rewinding
+		for (int i = 0; ; ) {
+			if (pos + i >= limit && !fillBuffer(i + 1)) {
+				throw syntaxError("Unterminated string");
+			}
+			char c = buffer[pos + i];
+			if (c == quote) {
+				break;
+			}
+			i += c == '\\' ? 2 : 1;
+		}
+
+		int start = pos;
+		int startLineNumber = lineNumber;
+		int startLineStart = lineStart;
+		CharView value = nextQuotedView(quote);
+		int index = options.indexOf(value.array(), value.offset(), value.length());
+		if (index < 0) {
+			pos = start;
+			lineNumber = startLineNumber;
+			lineStart = startLineStart;
+		}
+		return index;
+	}
+
+	/**
+	 * Copies {@code count} chars to the scratch buffer after its first
+	 * {@code length} ones, growing it if needed.
+	 *
+	 * @return the new length of the scratch buffer's contents.
+	 */
+	private int appendToScratch(int length, char[] chars, int start, int count) {
+		char[] scratch = ensureScratchCapacity(length + count);
+		System.arraycopy(chars, start, scratch, length, count);
+		return length + count;
+	}
+
+	private int appendToScratch(int length, char c) {
+		ensureScratchCapacity(length + 1)[length] = c;
+		return length + 1;
+	}
+
+	private char[] ensureScratchCapacity(int capacity) {
+		char[] scratch = this.scratch;
+		if (scratch == null) {
+			scratch = this.scratch = new char[Math.max(capacity, 32)];
+		} else if (scratch.length < capacity) {
+			scratch = this.scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+		}
+		return scratch;
+	}
+
 	private void skipQuotedValue(char quote) throws IOException {
 		// Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
-		char[] buffer = this.buffer;
 		do {
+			char[] buffer = this.buffer;
 			int p = pos;
 			int l = limit;
 			/* the index of the first character not yet appended to the builder. */
-			while (p < l) {
+			while ((p = SCANNER.skipStringContent(buffer, p, l)) < l) {
 				int c = buffer[p++];
 				if (c == quote) {
 					pos = p;
@@ -1332,9 +2523,10 @@ public final class JsonReader implements Closeable {
 				} else if (c == '\\') {
 					pos = p;
 					readEscapeCharacter();
+					buffer = this.buffer;
 					p = pos;
 					l = limit;
-				} else if (c == '\n') {
+				} else if (c == '\n' && trackLines) {
 					lineNumber++;
 					lineStart = p;
 				}
@@ -1391,15 +2583,42 @@ public final class JsonReader implements Closeable {
 	 */
 	private boolean fillBuffer(int minimum) throws IOException {
 		char[] buffer = this.buffer;
-		lineStart -= pos;
-		if (limit != pos) {
-			limit -= pos;
-			System.arraycopy(buffer, pos, buffer, 0, limit);
+		if (buffer == null) {
+			buffer = this.buffer = acquireBuffer(Math.max(bufferSize, minimum));
+		}
+
+		// Everything before pos is discarded, unless a checkpoint needs it
+		int discard = checkpoint == -1 ? pos : (int) Math.min(pos, checkpoint - bufferOffset);
+		if (!trackLines) {
+			// Count the lines that are about to be discarded, as nothing else does
+			for (int i = 0; i < discard; i++) {
+				if (buffer[i] == '\n') {
+					lineNumber++;
+					lineStart = i + 1;
+				}
+			}
+		}
+
+		bufferOffset += discard;
+		lineStart -= discard;
+		pos -= discard;
+		if (limit != discard) {
+			limit -= discard;
+			System.arraycopy(buffer, discard, buffer, 0, limit);
 		} else {
 			limit = 0;
 		}
 
-		pos = 0;
+		if (pos + minimum > buffer.length) {
+			// A single token doesn't fit, so grow the buffer to hold it
+			char[] grown = acquireBuffer(Math.max(pos + minimum, buffer.length * 2));
+			System.arraycopy(buffer, 0, grown, 0, limit);
+			if (bufferPool != null) {
+				bufferPool.release(buffer);
+			}
+			buffer = this.buffer = grown;
+		}
+
 		int total;
 		while ((total = in.read(buffer, limit, buffer.length - limit)) != -1) {
 			limit += total;
@@ -1408,16 +2627,59 @@ public final class JsonReader implements Closeable {
 			if (lineNumber == 0 && lineStart == 0 && limit > 0 && buffer[0] == '\ufeff') {
 				pos++;
 				lineStart++;
-				minimum++;
 			}
 
-			if (limit >= minimum) {
+			if (limit - pos >= minimum) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Remembers the current state, so that {@link #rewind()} can go back to it, and keeps every char from here
+	 * on in the buffer until the checkpoint is {@linkplain #releaseCheckpoint() released}. This must only be
+	 * set between tokens.
+	 */
+	void checkpoint() {
+		checkpoint = bufferOffset + pos;
+		checkpointLineNumber = lineNumber;
+		checkpointLineStart = bufferOffset + lineStart;
+		checkpointPeeked = peeked;
+		checkpointStackSize = stackSize;
+		checkpointScope = stack[stackSize - 1];
+	}
+
+	/**
+	 * Goes back to the last checkpoint, undoing a partly read token.
+	 */
+	void rewind() {
+		pos = (int) (checkpoint - bufferOffset);
+		if (trackLines) {
+			// Otherwise lines are only counted as they are discarded, which a checkpoint never undoes
+			lineNumber = checkpointLineNumber;
+			lineStart = (int) (checkpointLineStart - bufferOffset);
+		}
+		peeked = checkpointPeeked;
+		stackSize = checkpointStackSize;
+		stack[stackSize - 1] = checkpointScope;
+	}
+
+	void releaseCheckpoint() {
+		checkpoint = -1;
+	}
+
+	/**
+	 * The number of chars held on to by this reader's buffers, for {@link JsonReaderPool}.
+	 */
+	int retainedChars() {
+		return (buffer != null ? buffer.length : 0) + (scratch != null ? scratch.length : 0);
+	}
+
+	private char[] acquireBuffer(int size) {
+		return bufferPool != null ? bufferPool.acquire(size) : new char[size];
+	}
+
 	/**
 	 * Returns the next character in the stream that is neither whitespace nor a
 	 * part of a comment. When this returns, the returned character is always at
@@ -1442,14 +2704,21 @@ public final class JsonReader implements Closeable {
 				if (!fillBuffer(1)) {
 					break;
 				}
+				buffer = this.buffer;
 				p = pos;
 				l = limit;
 			}
 
+			p = SCANNER.skipWhitespace(buffer, p, l);
+			if (p == l) {
+				continue;
+			}
 			int c = buffer[p++];
 			if (c == '\n') {
-				lineNumber++;
-				lineStart = p;
+				if (trackLines) {
+					lineNumber++;
+					lineStart = p;
+				}
 				continue;
 			} else if (c == ' ' || c == '\r' || c == '\t') {
 				continue;
@@ -1467,6 +2736,7 @@ public final class JsonReader implements Closeable {
 					if (!charsLoaded) {
 						return c;
 					}
+					buffer = this.buffer;
 				}
 
 				// Comments are JSONC/5 only
@@ -1479,6 +2749,7 @@ public final class JsonReader implements Closeable {
 						if (!skipTo("*/")) {
 							throw syntaxError("Unterminated comment");
 						}
+						buffer = this.buffer;
 						p = pos + 2;
 						l = limit;
 						continue;
@@ -1487,6 +2758,7 @@ public final class JsonReader implements Closeable {
 						// skip a // end-of-line comment
 						pos++;
 						skipToEndOfLine();
+						buffer = this.buffer;
 						p = pos;
 						l = limit;
 						continue;
@@ -1544,8 +2816,10 @@ public final class JsonReader implements Closeable {
 		while (pos < limit || fillBuffer(1)) {
 			char c = buffer[pos++];
 			if (c == '\n') {
-				lineNumber++;
-				lineStart = pos;
+				if (trackLines) {
+					lineNumber++;
+					lineStart = pos;
+				}
 				break;
 			} else if (c == '\r') {
 				break;
@@ -1561,8 +2835,10 @@ public final class JsonReader implements Closeable {
 		outer:
 		for (; pos + length <= limit || fillBuffer(length); pos++) {
 			if (buffer[pos] == '\n') {
-				lineNumber++;
-				lineStart = pos + 1;
+				if (trackLines) {
+					lineNumber++;
+					lineStart = pos + 1;
+				}
 				continue;
 			}
 			for (int c = 0; c < length; c++) {
@@ -1576,9 +2852,30 @@ public final class JsonReader implements Closeable {
 	}
 
 	String locationString() {
-		int line = lineNumber + 1;
-		int column = pos - lineStart + 1;
-		return " at line " + line + " column " + column + " path " + path();
+		return " at " + lineAndColumn() + (trackPaths ? " path " + path() : "");
+	}
+
+	/**
+	 * Describes the current location for a {@link ParseException}: the path if it is tracked, and the line
+	 * and column otherwise.
+	 */
+	String errorLocation() {
+		return trackPaths ? path() : "at " + lineAndColumn();
+	}
+
+	private String lineAndColumn() {
+		int line = lineNumber;
+		int start = lineStart;
+		if (!trackLines && buffer != null) {
+			// Only the lines that have been discarded from the buffer are counted so far
+			for (int i = 0; i < pos; i++) {
+				if (buffer[i] == '\n') {
+					line++;
+					start = i + 1;
+				}
+			}
+		}
+		return "line " + (line + 1) + " column " + (pos - start + 1);
 	}
 
 	/**
@@ -1635,8 +2932,10 @@ public final class JsonReader implements Closeable {
 				return '\f';
 			case '\r':
 			case '\n':
-				lineNumber++;
-				lineStart = pos;
+				if (trackLines) {
+					lineNumber++;
+					lineStart = pos;
+				}
 				// fall-through
 
 			case '\'':
@@ -1650,6 +2949,9 @@ public final class JsonReader implements Closeable {
 		}
 	}
   private String getPath(boolean usePreviousPath) {
+    if (!trackPaths) {
+      return UNTRACKED_PATH;
+    }
     StringBuilder result = new StringBuilder().append('$');
     for (int i = 0; i < stackSize; i++) {
       switch (stack[i]) {
@@ -1672,6 +2974,7 @@ public final class JsonReader implements Closeable {
           break;
         case JsonScope.NONEMPTY_DOCUMENT:
         case JsonScope.EMPTY_DOCUMENT:
+        case JsonScope.NEXT_DOCUMENT:
         case JsonScope.CLOSED:
           break;
       }
@@ -1690,7 +2993,8 @@ public final class JsonReader implements Closeable {
    * </ul>
    *
    * <p>This method can be useful to add additional context to exception messages
-   * <i>after</i> a value has been consumed.
+   * <i>after</i> a value has been consumed. Returns {@value #UNTRACKED_PATH} if this
+   * reader doesn't track paths.
    */
   public String getPreviousPath() {
     return getPath(true);
@@ -1708,7 +3012,8 @@ public final class JsonReader implements Closeable {
    *
    * <p>This method can be useful to add additional context to exception messages
    * <i>before</i> a value is consumed, for example when the {@linkplain #peek() peeked}
-   * token is unexpected.
+   * token is unexpected. Returns {@value #UNTRACKED_PATH} if this reader doesn't track
+   * paths.
    */
   public String getPath() {
     return getPath(false);
@@ -1729,11 +3034,11 @@ public final class JsonReader implements Closeable {
 		nextNonWhitespace(true);
 		pos--;
 
-		int p = pos;
-		if (p + 5 > limit && !fillBuffer(5)) {
+		if (pos + 5 > limit && !fillBuffer(5)) {
 			return;
 		}
 
+		int p = pos;
 		char[] buf = buffer;
 		if(buf[p] != ')' || buf[p + 1] != ']' || buf[p + 2] != '}' || buf[p + 3] != '\'' || buf[p + 4] != '\n') {
 			return; // not a security token!
@@ -1742,4 +3047,236 @@ public final class JsonReader implements Closeable {
 		// we consumed a security token!
 		pos += 5;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The rest of a quoted string, for {@link #nextStringReader()}.
+	 */
+	private final class StringValueReader extends Reader {
+		private final char quote;
+		private boolean finished;
+
+		StringValueReader(char quote) {
+			this.quote = quote;
+		}
+
+		@Override
+		public int read(char[] chars, int offset, int length) throws IOException {
+			if (finished) {
+				return -1;
+			}
+
+			int n = 0;
+			while (n < length) {
+				if (pos == limit && !fillBuffer(1)) {
+					throw syntaxError("Unterminated string");
+				}
+
+				// Copy the run of plain content, then deal with what ended it
+				int p = pos;
+				int end = SCANNER.skipStringContent(buffer, p, Math.min(limit, p + length - n));
+				System.arraycopy(buffer, p, chars, offset + n, end - p);
+				n += end - p;
+				pos = end;
+				if (end == limit || n == length) {
+					continue;
+				}
+
+				char c = buffer[pos++];
+				if (c == quote) {
+					finished = true;
+					break;
+				} else if (c == '\\') {
+					c = readEscapeCharacter();
+				} else if (c == '\n' && trackLines) {
+					lineNumber++;
+					lineStart = pos;
+				}
+				chars[offset + n++] = c;
+			}
+			return n == 0 && finished ? -1 : n;
+		}
+
+		/**
+		 * Skips whatever is left of the string.
+		 */
+		@Override
+		public void close() throws IOException {
+			if (!finished) {
+				finished = true;
+				skipQuotedValue(quote);
+			}
+		}
+	}
+
+	/**
+	 * The elements of an array, for {@link #stream(JsonDecoder)}.
+	 */
+	private final class ElementSpliterator<T> implements Spliterator<T> {
+		private final JsonDecoder<? extends T> decoder;
+		private boolean finished;
+
+		ElementSpliterator(JsonDecoder<? extends T> decoder) {
+			this.decoder = decoder;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (finished) {
+				return false;
+			}
+
+			try {
+				if (hasNext()) {
+					action.accept(decoder.decode(JsonReader.this));
+					return true;
+				}
+				finished = true;
+				endArray();
+				return false;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void finish() {
+			if (finished) {
+				return;
+			}
+
+			finished = true;
+			try {
+				while (hasNext()) {
+					skipValueFast();
+				}
+				endArray();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public @Nullable Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return finished ? 0 : Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED;
+		}
+	}
+
+	/**
+	 * How much of the current location a {@link JsonReader} keeps track of.
+	 *
+	 * @see #setLocationTracking(LocationTracking)
+	 */
+	public enum LocationTracking {
+		/**
+		 * Tracks the path as well as the line and column, for {@link JsonReader#path()} and for exception messages.
+		 */
+		FULL,
+		/**
+		 * Only tracks the line and column. {@link JsonReader#path()} and {@link JsonReader#getPath()} return
+		 * {@value JsonReader#UNTRACKED_PATH}, and exception messages give the line and column instead of the path.
+		 */
+		LINES,
+		/**
+		 * Doesn't track anything while reading values. Lines are counted in bulk as the buffer is refilled, and
+		 * the line and column are worked out from there only when an exception message needs them.
+		 */
+		NONE
+	}
+
+	/**
+	 * A precompiled set of names or string values, for {@link #selectName(Options)} and
+	 * {@link #selectString(Options)}. Build one once, for example in a static field, and reuse it for every
+	 * document. Instances are immutable and may be shared between threads.
+	 */
+	public static final class Options {
+		final String[] strings;
+		/* An open-addressed hash table of indices into strings, offset by one so that zero means empty. */
+		private final int[] table;
+		private final int mask;
+
+		private Options(String[] strings) {
+			this.strings = strings;
+			int size = Integer.highestOneBit(Math.max(strings.length, 1) * 2 - 1) << 1;
+			this.table = new int[size];
+			this.mask = size - 1;
+
+			for (int i = 0; i < strings.length; i++) {
+				String string = Objects.requireNonNull(strings[i], "Options cannot contain null");
+				int slot = hash(string) & mask;
+				while (table[slot] != 0) {
+					if (strings[table[slot] - 1].equals(string)) {
+						throw new IllegalArgumentException("Duplicate option " + string);
+					}
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i + 1;
+			}
+		}
+
+		/**
+		 * Creates a set of options. The index of each string is its position in the arguments.
+		 *
+		 * @throws IllegalArgumentException if the same string is given twice.
+		 */
+		public static Options of(String... strings) {
+			return new Options(strings.clone());
+		}
+
+		/**
+		 * Returns the strings in this set, in index order.
+		 */
+		public List<String> strings() {
+			return Collections.unmodifiableList(Arrays.asList(strings));
+		}
+
+		int indexOf(char[] chars, int offset, int length) {
+			int hash = 0;
+			for (int i = offset, end = offset + length; i < end; i++) {
+				hash = 31 * hash + chars[i];
+			}
+
+			for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+				String candidate = strings[table[slot] - 1];
+				if (candidate.length() == length && matches(candidate, chars, offset)) {
+					return table[slot] - 1;
+				}
+			}
+			return -1;
+		}
+
+		int indexOf(String string) {
+			for (int slot = hash(string) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+				if (strings[table[slot] - 1].equals(string)) {
+					return table[slot] - 1;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean matches(String candidate, char[] chars, int offset) {
+			for (int i = 0; i < candidate.length(); i++) {
+				if (candidate.charAt(i) != chars[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int hash(String string) {
+			return spread(string.hashCode());
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * Keeps a few idle {@link JsonReader}s per thread, so that code parsing one small document after another,
+ * such as a request handler, can reuse readers and their buffers rather than allocating new ones each time.
+ *
+ * <pre>{@code
+ * JsonReader reader = JsonReaderPool.borrow(body, JsonFormat.JSON);
+ * try {
+ *     return decode(reader);
+ * } finally {
+ *     JsonReaderPool.release(reader);
+ * }
+ * }</pre>
+ *
+ * <p>Borrowed readers are {@linkplain JsonReader#reset(Reader, JsonFormat) reset} onto the new input, so they
+ * start out with default settings. A reader may be released on a different thread than it was borrowed on.
+ */
+public final class JsonReaderPool {
+	private static final int MAX_POOLED_READERS = 4;
+	private static final int MAX_RETAINED_CHARS = 256 * 1024;
+
+	/** Stands in for the input of pooled readers, so they don't keep their last document alive. */
+	private static final Reader EMPTY = new Reader() {
+		@Override
+		public int read(char[] chars, int offset, int length) {
+			return -1;
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	private static final ThreadLocal<ArrayDeque<JsonReader>> READERS = ThreadLocal.withInitial(ArrayDeque::new);
+
+	private JsonReaderPool() {
+	}
+
+	public static JsonReader borrow(Reader in, JsonFormat format) {
+		Objects.requireNonNull(in, "Reader cannot be null");
+		JsonReader reader = READERS.get().pollFirst();
+		if (reader == null) {
+			reader = JsonReader.create(in, format);
+		} else {
+			reader.reset(in, format);
+		}
+		reader.borrowed = true;
+		return reader;
+	}
+
+	public static JsonReader borrow(String in, JsonFormat format) {
+		return borrow(new StringReader(Objects.requireNonNull(in, "Input string cannot be null")), format);
+	}
+
+	/**
+	 * Borrows a reader for a UTF-8 encoded stream.
+	 */
+	public static JsonReader borrow(InputStream in, JsonFormat format) {
+		return borrow(new Utf8Reader(Objects.requireNonNull(in, "Input stream cannot be null")), format);
+	}
+
+	/**
+	 * Borrows a reader for UTF-8 encoded bytes.
+	 */
+	public static JsonReader borrow(byte[] in, JsonFormat format) {
+		Objects.requireNonNull(in, "Input bytes cannot be null");
+		return borrow(new Utf8Reader(in, 0, in.length), format);
+	}
+
+	/**
+	 * Borrows a reader for the remaining UTF-8 encoded bytes of a buffer.
+	 */
+	public static JsonReader borrow(ByteBuffer in, JsonFormat format) {
+		return borrow(new Utf8Reader(Objects.requireNonNull(in, "Input buffer cannot be null")), format);
+	}
+
+	/**
+	 * Hands a borrowed reader back to the pool. Its input is not closed, and the caller must not use the
+	 * reader afterwards. Readers whose buffers have grown past 256K chars are dropped rather than kept.
+	 *
+	 * @throws IllegalStateException if the reader was not borrowed from the pool, or has already been released.
+	 */
+	public static void release(JsonReader reader) {
+		if (!reader.borrowed) {
+			throw new IllegalStateException("Reader is not borrowed from the pool");
+		}
+		reader.borrowed = false;
+
+		ArrayDeque<JsonReader> readers = READERS.get();
+		if (readers.size() < MAX_POOLED_READERS && reader.retainedChars() <= MAX_RETAINED_CHARS) {
+			reader.reset(EMPTY, JsonFormat.JSON);
+			readers.addFirst(reader);
+		}
+	}
+}
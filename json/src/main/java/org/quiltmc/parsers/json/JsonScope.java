@@ -75,4 +75,10 @@ final class JsonScope {
 	 * A document that's been closed and cannot be accessed.
 	 */
 	static final int CLOSED = 8;
+
+	/**
+	 * A stream of several documents where the next one has been begun, but
+	 * its top-level value hasn't been read yet.
+	 */
+	static final int NEXT_DOCUMENT = 9;
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+/**
+ * A bounded cache of canonical {@link String} instances, looked up straight from a range of chars. Documents
+ * tend to repeat the same few hundred object keys, so a {@link JsonReader} with a symbol table hands back the
+ * same instance for each occurrence of a key instead of allocating a new string every time.
+ *
+ * <p>The table is a fixed-size, two-way associative cache: when both slots a name hashes to are taken, the
+ * newest name replaces one of them. Lookups never lock, and one table may be shared by any number of readers
+ * on any number of threads. Because {@code String}s are immutable, a racing lookup can at worst miss and
+ * allocate a string that another thread just cached.
+ *
+ * @see JsonReader#setSymbolTable(JsonSymbolTable)
+ * @see JsonReader#setValueSymbolTable(JsonSymbolTable)
+ */
+public final class JsonSymbolTable {
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int DEFAULT_MAX_LENGTH = 64;
+
+	private final String[] symbols;
+	private final int mask;
+	private final int maxLength;
+
+	/**
+	 * Creates a table with room for 1024 symbols of up to 64 chars each.
+	 */
+	public JsonSymbolTable() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+	}
+
+	/**
+	 * @param capacity the number of symbols the table can hold, rounded up to a power of two.
+	 * @param maxLength the longest string that will be cached; longer strings are always allocated anew.
+	 */
+	public JsonSymbolTable(int capacity, int maxLength) {
+		if (capacity < 2 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 2 and 2^30, but was " + capacity);
+		}
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("Maximum length must not be negative, but was " + maxLength);
+		}
+
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.symbols = new String[size];
+		this.mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Returns the canonical string with the contents of {@code chars[offset, offset + length)}.
+	 */
+	public String lookup(char[] chars, int offset, int length) {
+		if (length > maxLength) {
+			return new String(chars, offset, length);
+		}
+
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			hash = 31 * hash + chars[i];
+		}
+		hash ^= hash >>> 16;
+
+		String[] symbols = this.symbols;
+		int slot = hash & mask;
+		String symbol = symbols[slot];
+		if (symbol != null && matches(symbol, chars, offset, length)) {
+			return symbol;
+		}
+		String other = symbols[slot ^ 1];
+		if (other != null && matches(other, chars, offset, length)) {
+			return other;
+		}
+
+		String created = new String(chars, offset, length);
+		// Prefer an empty slot, otherwise evict the primary one
+		symbols[symbol != null && other == null ? slot ^ 1 : slot] = created;
+		return created;
+	}
+
+	private static boolean matches(String symbol, char[] chars, int offset, int length) {
+		if (symbol.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (symbol.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
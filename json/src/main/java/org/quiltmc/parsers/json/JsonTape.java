@@ -0,0 +1,595 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An index of every token of a document held in memory, for large documents that are queried many times or
+ * read out of order.
+ *
+ * <p>Building a tape tokenizes the document once with a {@link JsonReader}, so it accepts exactly what a reader
+ * of the same {@link JsonFormat} accepts, and records where each token starts and ends. Each object and array
+ * also records where its matching end is, so skipping a value or looking up a member walks the tape instead of
+ * tokenizing the document again. Values are only decoded when they are read.
+ *
+ * <p>The tape is walked with a {@link Cursor}, and a {@link JsonReader} can be resumed at any value with
+ * {@link #reader(int)}. A tape never changes once built, so it may be shared between threads, each using its
+ * own cursors.
+ */
+public final class JsonTape {
+	private static final JsonToken[] TOKENS = JsonToken.values();
+	private static final int BUILD_BUFFER_SIZE = 16384;
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private final char[] source;
+	private final JsonFormat format;
+	private final int size;
+
+	/* One entry per token: its JsonToken ordinal and the offset of its first char. */
+	private final byte[] tokens;
+	private final int[] starts;
+	/* For the beginning of an object or array, the index of its end. For any other entry, the offset just past its last char. */
+	private final int[] links;
+
+	private JsonTape(char[] source, JsonFormat format, int size, byte[] tokens, int[] starts, int[] links) {
+		this.source = source;
+		this.format = format;
+		this.size = size;
+		this.tokens = tokens;
+		this.starts = starts;
+		this.links = links;
+	}
+
+	/**
+	 * Builds the tape of a document.
+	 *
+	 * @throws MalformedSyntaxException if the document is malformed.
+	 * @throws FormatViolationException if the document uses features {@code format} does not allow.
+	 */
+	public static JsonTape parse(String in, JsonFormat format) throws IOException {
+		Objects.requireNonNull(in, "Input string cannot be null");
+		return build(in.toCharArray(), in.length(), format);
+	}
+
+	/**
+	 * Reads {@code in} to its end and builds the tape of its contents. The reader is not closed.
+	 */
+	public static JsonTape parse(Reader in, JsonFormat format) throws IOException {
+		Objects.requireNonNull(in, "Reader cannot be null");
+		char[] chars = new char[READ_BUFFER_SIZE];
+		int length = 0;
+		int read;
+		while ((read = in.read(chars, length, chars.length - length)) != -1) {
+			length += read;
+			if (length == chars.length) {
+				chars = Arrays.copyOf(chars, chars.length * 2);
+			}
+		}
+		return build(chars, length, format);
+	}
+
+	/**
+	 * Builds the tape of a UTF-8 encoded file.
+	 */
+	public static JsonTape parse(Path in, JsonFormat format) throws IOException {
+		try (Reader reader = new Utf8Reader(Files.newInputStream(Objects.requireNonNull(in, "Path cannot be null")))) {
+			return parse(reader, format);
+		}
+	}
+
+	private static JsonTape build(char[] source, int length, JsonFormat format) throws IOException {
+		JsonReader reader = JsonReader.create(new CharArrayReader(source, 0, length), format, BUILD_BUFFER_SIZE);
+		reader.setLocationTracking(JsonReader.LocationTracking.LINES);
+
+		int capacity = Math.max(16, length / 16);
+		byte[] tokens = new byte[capacity];
+		int[] starts = new int[capacity];
+		int[] links = new int[capacity];
+		int size = 0;
+
+		// The indices of the objects and arrays that are still open
+		int[] open = new int[32];
+		int depth = 0;
+
+		while (true) {
+			JsonToken token = reader.peek();
+			int start = (int) reader.peekedStart();
+			if (size == tokens.length) {
+				int grown = size + (size >> 1);
+				tokens = Arrays.copyOf(tokens, grown);
+				starts = Arrays.copyOf(starts, grown);
+				links = Arrays.copyOf(links, grown);
+			}
+			int index = size++;
+			tokens[index] = (byte) token.ordinal();
+			starts[index] = start;
+
+			switch (token) {
+			case BEGIN_OBJECT:
+			case BEGIN_ARRAY:
+				if (token == JsonToken.BEGIN_OBJECT) {
+					reader.beginObject();
+				} else {
+					reader.beginArray();
+				}
+				if (depth == open.length) {
+					open = Arrays.copyOf(open, depth * 2);
+				}
+				open[depth++] = index;
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				if (token == JsonToken.END_OBJECT) {
+					reader.endObject();
+				} else {
+					reader.endArray();
+				}
+				links[open[--depth]] = index;
+				links[index] = start + 1;
+				break;
+			case END_DOCUMENT:
+				links[index] = start;
+				return new JsonTape(source, format, size, tokens, starts, links);
+			default:
+				reader.skipValue();
+				links[index] = (int) reader.position();
+			}
+		}
+	}
+
+	public JsonFormat getFormat() {
+		return format;
+	}
+
+	/**
+	 * Returns the number of entries in the tape: one per token, and a last one for the end of the document.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public JsonToken token(int index) {
+		checkIndex(index);
+		return TOKENS[tokens[index]];
+	}
+
+	/**
+	 * Returns the offset in the document of the first char of the token at {@code index}. For strings and names,
+	 * this is the offset of the opening quote.
+	 */
+	public int start(int index) {
+		checkIndex(index);
+		return starts[index];
+	}
+
+	/**
+	 * Returns the offset in the document just past the token at {@code index}. For the beginning of an object or
+	 * array, this is just past its closing bracket.
+	 */
+	public int end(int index) {
+		checkIndex(index);
+		return isBegin(index) ? starts[links[index]] + 1 : links[index];
+	}
+
+	/**
+	 * Returns the index of the entry that follows the value or name at {@code index}, skipping over the
+	 * contents of objects and arrays.
+	 */
+	public int next(int index) {
+		checkIndex(index);
+		return isBegin(index) ? links[index] + 1 : index + 1;
+	}
+
+	/**
+	 * Returns the source text of the token at {@code index}, as it appears in the document. For the beginning of
+	 * an object or array, this is the whole object or array.
+	 */
+	public String text(int index) {
+		int start = start(index);
+		return new String(source, start, end(index) - start);
+	}
+
+	/**
+	 * Returns a new reader of the value at {@code index}, which reads it as though it were a whole document.
+	 * The reader's paths, lines and columns are relative to the start of the value.
+	 *
+	 * @throws IllegalArgumentException if there is no value at {@code index}.
+	 */
+	public JsonReader reader(int index) {
+		checkValue(index);
+		return newReader(index);
+	}
+
+	/**
+	 * Returns a cursor at the start of the document.
+	 */
+	public Cursor cursor() {
+		return new Cursor(0, size - 1);
+	}
+
+	/**
+	 * Returns a cursor that walks the value at {@code index} as though it were a whole document.
+	 *
+	 * @throws IllegalArgumentException if there is no value at {@code index}.
+	 */
+	public Cursor cursor(int index) {
+		checkValue(index);
+		return new Cursor(index, next(index));
+	}
+
+	/**
+	 * Returns the index of the value of the member named {@code name} of the object at {@code object}, or -1 if
+	 * it has no such member.
+	 */
+	int find(int object, String name) throws IOException {
+		for (int i = object + 1, last = links[object]; i < last; i = next(i + 1)) {
+			if (nameEquals(i, name)) {
+				return i + 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the contents of the name or string at {@code index} if it can be copied straight from the
+	 * document, or null if it has escape sequences.
+	 */
+	@Nullable String rawString(int index) {
+		int start = starts[index];
+		int end = links[index];
+		char quote = source[start];
+		if (quote != '"' && quote != '\'') {
+			return new String(source, start, end - start); // unquoted names and values have no escapes
+		}
+		for (int i = start + 1; i < end - 1; i++) {
+			if (source[i] == '\\') {
+				return null;
+			}
+		}
+		return new String(source, start + 1, end - start - 2);
+	}
+
+	/**
+	 * Returns true if the name at {@code index} is {@code name}, without decoding it unless it has escape sequences.
+	 */
+	boolean nameEquals(int index, String name) throws IOException {
+		int start = starts[index];
+		int end = links[index];
+		char quote = source[start];
+		if (quote == '"' || quote == '\'') {
+			start++;
+			end--;
+		}
+
+		int length = end - start;
+		if (length < name.length()) {
+			return false; // escape sequences only ever make a name shorter than its source
+		}
+		for (int i = start; i < end; i++) {
+			if (source[i] == '\\') {
+				return newReader(index).nextString().equals(name);
+			}
+		}
+		if (length != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (source[start + i] != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first char of the token at {@code index}, without copying its text.
+	 */
+	char firstChar(int index) {
+		return source[starts[index]];
+	}
+
+	/**
+	 * Returns true if the number at {@code index} is a decimal integer that fits in a long, with no sign but
+	 * an optional minus.
+	 */
+	boolean isPlainInteger(int index) {
+		int start = starts[index];
+		int end = links[index];
+		if (start < end && source[start] == '-') {
+			start++;
+		}
+		if (start == end || end - start > 18) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (source[i] < '0' || source[i] > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	long parsePlainInteger(int index) {
+		int start = starts[index];
+		int end = links[index];
+		boolean negative = source[start] == '-';
+		long result = 0;
+		for (int i = negative ? start + 1 : start; i < end; i++) {
+			result = result * 10 + (source[i] - '0');
+		}
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Returns a reader of the token at {@code index}, whatever it is.
+	 */
+	JsonReader newReader(int index) {
+		return JsonReader.create(slice(index), format);
+	}
+
+	private boolean isBegin(int index) {
+		return tokens[index] == JsonToken.BEGIN_OBJECT.ordinal() || tokens[index] == JsonToken.BEGIN_ARRAY.ordinal();
+	}
+
+	private Reader slice(int index) {
+		int start = starts[index];
+		return new CharArrayReader(source, start, end(index) - start);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+	}
+
+	private void checkValue(int index) {
+		checkIndex(index);
+		JsonToken token = TOKENS[tokens[index]];
+		if (token == JsonToken.NAME || token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY || token == JsonToken.END_DOCUMENT) {
+			throw new IllegalArgumentException("Expected a value at index " + index + " but was " + token);
+		}
+	}
+
+	String lineAndColumn(int offset) {
+		int line = 0;
+		int lineStart = 0;
+		for (int i = 0; i < offset; i++) {
+			if (source[i] == '\n') {
+				line++;
+				lineStart = i + 1;
+			}
+		}
+		return "line " + (line + 1) + " column " + (offset - lineStart + 1);
+	}
+
+	/**
+	 * Walks a {@link JsonTape} with the same methods as a {@link JsonReader}, but without tokenizing anything:
+	 * skipping a value, leaving an object or array early, and {@linkplain #findName(String) looking up a member}
+	 * only follow links in the tape. Strings without escape sequences and plain integers are decoded straight
+	 * from the document; anything else is decoded by a reader that is reused for the life of the cursor.
+	 *
+	 * <p>Cursors are cheap, but not thread safe.
+	 */
+	public final class Cursor {
+		private int index;
+		private final int end;
+		/* The indices of the objects and arrays this cursor is in. */
+		private int[] scopes = new int[16];
+		private int depth;
+		private JsonReader reader;
+
+		private Cursor(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+
+		/**
+		 * Returns the index of the entry this cursor is at.
+		 */
+		public int index() {
+			return index;
+		}
+
+		public JsonToken peek() {
+			return index == end ? JsonToken.END_DOCUMENT : TOKENS[tokens[index]];
+		}
+
+		public boolean hasNext() {
+			JsonToken token = peek();
+			return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY;
+		}
+
+		public void beginObject() {
+			expect(JsonToken.BEGIN_OBJECT);
+			enter();
+		}
+
+		/**
+		 * Leaves the current object, skipping any of its members that have not been read.
+		 */
+		public void endObject() {
+			leave(JsonToken.BEGIN_OBJECT, JsonToken.END_OBJECT);
+		}
+
+		public void beginArray() {
+			expect(JsonToken.BEGIN_ARRAY);
+			enter();
+		}
+
+		/**
+		 * Leaves the current array, skipping any of its elements that have not been read.
+		 */
+		public void endArray() {
+			leave(JsonToken.BEGIN_ARRAY, JsonToken.END_ARRAY);
+		}
+
+		public String nextName() throws IOException {
+			expect(JsonToken.NAME);
+			return decode(index++);
+		}
+
+		/**
+		 * Moves to the value of the member of the current object named {@code name}, wherever it is in the
+		 * object, and returns true. If there is no such member, this moves to the end of the object and returns
+		 * false. Names are compared straight from the document unless they contain escape sequences.
+		 *
+		 * @throws IllegalStateException if the cursor is not in an object.
+		 */
+		public boolean findName(String name) throws IOException {
+			if (depth == 0 || tokens[scopes[depth - 1]] != JsonToken.BEGIN_OBJECT.ordinal()) {
+				throw new IllegalStateException("Expected to be in an object" + location());
+			}
+
+			int value = find(scopes[depth - 1], name);
+			index = value != -1 ? value : links[scopes[depth - 1]];
+			return value != -1;
+		}
+
+		/**
+		 * Returns the {@link JsonToken#STRING string} value at the cursor, or the literal text of a number.
+		 */
+		public String nextString() throws IOException {
+			JsonToken token = peek();
+			if (token == JsonToken.NUMBER) {
+				return text(index++);
+			} else if (token != JsonToken.STRING) {
+				throw unexpected("a string");
+			}
+			return decode(index++);
+		}
+
+		public boolean nextBoolean() {
+			expect(JsonToken.BOOLEAN);
+			return (source[starts[index++]] | 0x20) == 't';
+		}
+
+		public void nextNull() {
+			expect(JsonToken.NULL);
+			index++;
+		}
+
+		public double nextDouble() throws IOException {
+			expectNumber("a double");
+			double result = open(index).nextDouble();
+			index++;
+			return result;
+		}
+
+		public long nextLong() throws IOException {
+			expectNumber("a long");
+			long result = isPlainInteger(index) ? parsePlainInteger(index) : open(index).nextLong();
+			index++;
+			return result;
+		}
+
+		public int nextInt() throws IOException {
+			expectNumber("an int");
+			long plain = isPlainInteger(index) ? parsePlainInteger(index) : Long.MIN_VALUE;
+			int result = (int) plain == plain ? (int) plain : open(index).nextInt();
+			index++;
+			return result;
+		}
+
+		/**
+		 * Skips the value or name at the cursor, without looking at its contents.
+		 */
+		public void skipValue() {
+			if (!hasNext() || peek() == JsonToken.END_DOCUMENT) {
+				throw unexpected("a value");
+			}
+			index = next(index);
+		}
+
+		/**
+		 * Returns a new reader of the value at the cursor, like {@link JsonTape#reader(int)}, and moves this
+		 * cursor past it. The reader is independent of this cursor.
+		 */
+		public JsonReader reader() {
+			JsonToken token = peek();
+			if (token == JsonToken.NAME || !hasNext() || token == JsonToken.END_DOCUMENT) {
+				throw unexpected("a value");
+			}
+			JsonReader result = JsonTape.this.reader(index);
+			index = next(index);
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + location();
+		}
+
+		private void enter() {
+			if (depth == scopes.length) {
+				scopes = Arrays.copyOf(scopes, depth * 2);
+			}
+			scopes[depth++] = index++;
+		}
+
+		private void leave(JsonToken begin, JsonToken token) {
+			if (depth == 0 || tokens[scopes[depth - 1]] != begin.ordinal()) {
+				throw unexpected(token.name());
+			}
+			index = links[scopes[--depth]] + 1;
+		}
+
+		private void expect(JsonToken token) {
+			if (peek() != token) {
+				throw unexpected(token.name());
+			}
+		}
+
+		private void expectNumber(String expected) {
+			JsonToken token = peek();
+			if (token != JsonToken.NUMBER) {
+				throw unexpected(expected);
+			}
+		}
+
+		private IllegalStateException unexpected(String expected) {
+			return new IllegalStateException("Expected " + expected + " but was " + peek() + location());
+		}
+
+		private String location() {
+			return " at " + lineAndColumn(starts[index]) + " index " + index;
+		}
+
+		private String decode(int index) throws IOException {
+			String raw = rawString(index);
+			return raw != null ? raw : open(index).nextString();
+		}
+
+		private JsonReader open(int index) {
+			if (reader == null) {
+				reader = JsonReader.create(slice(index), format);
+			} else {
+				reader.reset(slice(index), format);
+			}
+			reader.setLocationTracking(JsonReader.LocationTracking.NONE);
+			return reader;
+		}
+	}
+}
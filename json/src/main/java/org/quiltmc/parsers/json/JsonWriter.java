@@ -21,10 +21,16 @@ package org.quiltmc.parsers.json;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /*
  *
@@ -164,6 +170,11 @@ public final class JsonWriter implements Closeable, Flushable {
 		HTML_SAFE_REPLACEMENT_CHARS['\''] = "\\u0027";
 	}
 
+	/** How many chars {@link #value(Reader)} reads at a time. */
+	private static final int STRING_READ_SIZE = 4096;
+	/** How many bytes {@link #value(byte[])} and {@link #value(InputStream)} encode at a time; a multiple of three. */
+	private static final int BINARY_CHUNK_SIZE = 3072;
+
 	/** The output data, containing at most one top-level array or object. */
 	private final Writer out;
 	private final JsonFormat format;
@@ -259,6 +270,61 @@ public final class JsonWriter implements Closeable, Flushable {
 		return new JsonWriter(out, format);
 	}
 
+	/**
+	 * Encodes {@code value} as a whole document and writes it, UTF-8 encoded, to a file without blocking the
+	 * calling thread. {@code encoder} runs on {@code executor}, filling one buffer while the other is written
+	 * through an {@link AsynchronousFileChannel}; it waits only if it gets ahead of the disk. The last write
+	 * happens after the encoder has returned, so it does not hold on to a thread of the executor.
+	 *
+	 * <p>The returned future completes once everything has been written and the file has been closed. It fails
+	 * with the exception thrown by the encoder, or with an {@link IOException} if the document is incomplete or
+	 * could not be written, in which case the file is left incomplete. It fails with a
+	 * {@link RejectedExecutionException}, without touching the file, if {@code executor} did not accept the task.
+	 */
+	public static <T> CompletableFuture<Void> writeAsync(Path out, JsonFormat format, T value, JsonEncoder<? super T> encoder, Executor executor) {
+		Objects.requireNonNull(out, "Path cannot be null");
+		Objects.requireNonNull(format, "Format cannot be null");
+		Objects.requireNonNull(encoder, "Encoder cannot be null");
+		Objects.requireNonNull(executor, "Executor cannot be null");
+
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		try {
+			executor.execute(() -> encodeAsync(out, format, value, encoder, result));
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	private static <T> void encodeAsync(Path out, JsonFormat format, T value, JsonEncoder<? super T> encoder, CompletableFuture<Void> result) {
+		AsyncFileOutputStream output;
+		try {
+			output = new AsyncFileOutputStream(out);
+		} catch (Throwable t) {
+			result.completeExceptionally(t);
+			return;
+		}
+
+		try {
+			// Closing the writer only starts the last write
+			JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), format);
+			encoder.encode(writer, value);
+			writer.close();
+		} catch (Throwable t) {
+			output.close();
+			result.completeExceptionally(t);
+			return;
+		}
+
+		output.closed().whenComplete((ignored, e) -> {
+			if (e != null) {
+				result.completeExceptionally(e);
+			} else {
+				result.complete(null);
+			}
+		});
+	}
+
 	private JsonWriter(Writer out, JsonFormat format) {
 		Objects.requireNonNull(out, "Writer cannot be null");
 		this.out = out;
@@ -412,6 +478,88 @@ public final class JsonWriter implements Closeable, Flushable {
 		return this;
 	}
 
+	/**
+	 * Encodes the rest of {@code value} as a string, reading it a buffer at a
+	 * time so that even a very large value is never held in memory at once. The
+	 * reader is not closed.
+	 *
+	 * @param value the string's contents, or null to encode a null literal.
+	 * @return this writer.
+	 */
+	public JsonWriter value(@Nullable Reader value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		writeDeferredName();
+		beforeValue();
+		out.write('\"');
+		char[] chars = new char[STRING_READ_SIZE];
+		for (int read; (read = value.read(chars, 0, chars.length)) != -1; ) {
+			string(CharBuffer.wrap(chars, 0, read), false, true);
+		}
+		out.write('\"');
+		return this;
+	}
+
+	/**
+	 * Encodes {@code value} as a standard Base64 string, a piece at a time,
+	 * without building the whole string first.
+	 *
+	 * @param value the bytes, or null to encode a null literal.
+	 * @return this writer.
+	 */
+	public JsonWriter value(@Nullable byte[] value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		writeDeferredName();
+		beforeValue();
+		out.write('\"');
+		char[] chars = new char[BINARY_CHUNK_SIZE / 3 * 4];
+		for (int i = 0; i < value.length; i += BINARY_CHUNK_SIZE) {
+			int encoded = Base64Codec.encode(value, i, Math.min(BINARY_CHUNK_SIZE, value.length - i), chars);
+			string(CharBuffer.wrap(chars, 0, encoded), false, true);
+		}
+		out.write('\"');
+		return this;
+	}
+
+	/**
+	 * Encodes the rest of {@code value} as a standard Base64 string, reading it
+	 * a buffer at a time, so that the bytes are never all held in memory. The
+	 * stream is not closed.
+	 *
+	 * @param value the bytes, or null to encode a null literal.
+	 * @return this writer.
+	 */
+	public JsonWriter value(@Nullable InputStream value) throws IOException {
+		if (value == null) {
+			return nullValue();
+		}
+		writeDeferredName();
+		beforeValue();
+		out.write('\"');
+		byte[] bytes = new byte[BINARY_CHUNK_SIZE];
+		char[] chars = new char[BINARY_CHUNK_SIZE / 3 * 4];
+		boolean ended = false;
+		while (!ended) {
+			// Only the last piece may be padded, so fill each one up
+			int length = 0;
+			while (length < bytes.length) {
+				int read = value.read(bytes, length, bytes.length - length);
+				if (read == -1) {
+					ended = true;
+					break;
+				}
+				length += read;
+			}
+			int encoded = Base64Codec.encode(bytes, 0, length, chars);
+			string(CharBuffer.wrap(chars, 0, encoded), false, true);
+		}
+		out.write('\"');
+		return this;
+	}
+
 	/**
 	 * Encodes {@code value}.
 	 *
@@ -688,16 +836,12 @@ public final class JsonWriter implements Closeable, Flushable {
 		deferredComment = null;
 	}
 
-	private void string(String value, boolean quotes, boolean escapeQuotes) throws IOException {
+	private void string(CharSequence value, boolean quotes, boolean escapeQuotes) throws IOException {
 		String[] replacements = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
 		if (quotes) {
 			out.write('\"');
 		}
 
-		if (!escapeQuotes) {
-			replacements['\"'] = null;
-		}
-
 		int last = 0;
 		int length = value.length();
 
@@ -706,7 +850,7 @@ public final class JsonWriter implements Closeable, Flushable {
 			String replacement;
 			if (c < 128) {
 				replacement = replacements[c];
-				if (replacement == null) {
+				if (replacement == null || c == '\"' && !escapeQuotes) {
 					continue;
 				}
 			} else if (c == '\u2028') {
@@ -717,13 +861,13 @@ public final class JsonWriter implements Closeable, Flushable {
 				continue;
 			}
 			if (last < i) {
-				out.write(value, last, i - last);
+				write(value, last, i);
 			}
 			out.write(replacement);
 			last = i + 1;
 		}
 		if (last < length) {
-			out.write(value, last, length - last);
+			write(value, last, length);
 		}
 
 		if (quotes) {
@@ -731,6 +875,21 @@ public final class JsonWriter implements Closeable, Flushable {
 		}
 	}
 
+	/**
+	 * Writes part of a string without escaping it. Writer.append would copy
+	 * it into a new String first.
+	 */
+	private void write(CharSequence value, int start, int end) throws IOException {
+		if (value instanceof String) {
+			out.write((String) value, start, end - start);
+		} else if (value instanceof CharBuffer && ((CharBuffer) value).hasArray()) {
+			CharBuffer buffer = (CharBuffer) value;
+			out.write(buffer.array(), buffer.arrayOffset() + buffer.position() + start, end - start);
+		} else {
+			out.append(value, start, end);
+		}
+	}
+
 	private void commentAndNewline() throws IOException {
 		if (indent == null) {
 			return;
@@ -41,7 +41,7 @@ public class ParseException extends RuntimeException {
 	}
 
 	public ParseException(JsonReader reader, String message) {
-		super(String.format("%s %s", message, reader.path()));
+		super(String.format("%s %s", message, reader.errorLocation()));
 	}
 
 	public ParseException(JsonReader reader, Throwable cause) {
@@ -49,6 +49,6 @@ public class ParseException extends RuntimeException {
 	}
 
 	public ParseException(JsonReader reader, String message, Throwable cause) {
-		super(String.format("%s %s", message, reader.path()), cause);
+		super(String.format("%s %s", message, reader.errorLocation()), cause);
 	}
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads ahead of its consumer on a helper thread, which fills a fixed ring of chunks from the source while the
+ * consumer takes chars out of the chunk before. Each chunk is handed over as soon as a read puts anything in it, so
+ * a slow source never holds back chars the consumer could already use. The source is only ever touched by the
+ * helper thread, which closes it when it stops.
+ */
+final class ReadAheadReader extends Reader {
+	/* How long close() waits for the helper thread to stop. */
+	private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+	private final Reader source;
+	private final BlockingQueue<Chunk> filled;
+	private final BlockingQueue<Chunk> free;
+	private final Thread thread;
+	private volatile boolean closed;
+
+	private @Nullable Chunk current;
+	private int pos;
+	private @Nullable Exception failure;
+
+	ReadAheadReader(Reader source, int chunkSize, int chunkCount) {
+		if (chunkSize <= 0 || chunkCount <= 0) {
+			throw new IllegalArgumentException("Chunk size and count must be positive");
+		}
+
+		this.source = source;
+		this.filled = new ArrayBlockingQueue<>(chunkCount);
+		this.free = new ArrayBlockingQueue<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			free.add(new Chunk(new char[chunkSize]));
+		}
+
+		this.thread = new Thread(this::fill, "JsonReader read-ahead");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public int read(char[] chars, int offset, int length) throws IOException {
+		if (closed) {
+			throw new IOException("Reader closed");
+		}
+		if (length == 0) {
+			return 0;
+		}
+
+		while (current == null || pos == current.length) {
+			if (!advance()) {
+				return -1;
+			}
+		}
+
+		int read = Math.min(length, current.length - pos);
+		System.arraycopy(current.chars, pos, chars, offset, read);
+		pos += read;
+		return read;
+	}
+
+	@Override
+	public boolean ready() {
+		return current != null && pos < current.length || !filled.isEmpty();
+	}
+
+	/**
+	 * Stops the helper thread, and waits a while for it to close the source. A helper blocked in a read that
+	 * ignores interrupts is not waited for: it closes the source on its own once the read returns.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		thread.interrupt();
+
+		try {
+			thread.join(CLOSE_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Hands the consumed chunk back to the helper thread, and takes the next one.
+	 */
+	private boolean advance() throws IOException {
+		if (failure != null) {
+			throw rethrow(failure);
+		}
+		if (current != null) {
+			// Whatever was read before a failure is handed out first
+			if (current.error != null) {
+				failure = current.error;
+				throw rethrow(failure);
+			} else if (current.last) {
+				return false;
+			}
+			free.add(current);
+			current = null;
+		}
+
+		try {
+			current = filled.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		pos = 0;
+		return true;
+	}
+
+	private static IOException rethrow(Exception e) {
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		}
+		return (IOException) e;
+	}
+
+	private void fill() {
+		try {
+			while (!closed) {
+				Chunk chunk = free.take();
+				char[] chars = chunk.chars;
+				int length = 0;
+				try {
+					while (length == 0) {
+						int read = source.read(chars, 0, chars.length);
+						if (read == -1) {
+							chunk.last = true;
+							break;
+						}
+						length = read;
+					}
+				} catch (IOException | RuntimeException e) {
+					chunk.error = e;
+				}
+
+				chunk.length = length;
+				filled.add(chunk); // never full, as there are only as many chunks as it has room for
+				if (chunk.last || chunk.error != null) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		} finally {
+			try {
+				source.close();
+			} catch (IOException ignored) {
+				// Nothing is left to report it to
+			}
+		}
+	}
+
+	private static final class Chunk {
+		final char[] chars;
+		int length;
+		boolean last;
+		@Nullable Exception error;
+
+		Chunk(char[] chars) {
+			this.chars = chars;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+/**
+ * Caches the largest recently released buffer of each thread.
+ */
+final class ThreadLocalBufferPool implements BufferPool {
+	static final ThreadLocalBufferPool INSTANCE = new ThreadLocalBufferPool();
+
+	private static final int MAX_RETAINED_SIZE = 256 * 1024;
+
+	private final ThreadLocal<char[]> cached = new ThreadLocal<>();
+
+	private ThreadLocalBufferPool() {
+	}
+
+	@Override
+	public char[] acquire(int minimumSize) {
+		char[] buffer = cached.get();
+		if (buffer != null && buffer.length >= minimumSize) {
+			cached.set(null);
+			return buffer;
+		}
+		return new char[minimumSize];
+	}
+
+	@Override
+	public void release(char[] buffer) {
+		if (buffer.length > MAX_RETAINED_SIZE) {
+			return;
+		}
+
+		char[] current = cached.get();
+		if (current == null || current.length < buffer.length) {
+			cached.set(buffer);
+		}
+	}
+}
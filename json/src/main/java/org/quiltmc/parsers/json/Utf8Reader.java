@@ -0,0 +1,313 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.MalformedInputException;
+
+/**
+ * A {@link Reader} that decodes UTF-8 from bytes, tuned for the mostly-ASCII content of JSON documents.
+ *
+ * <p>Runs of ASCII are widened straight into the caller's buffer, without going through a
+ * {@link java.nio.charset.CharsetDecoder}; only multibyte sequences are decoded character by character.
+ * Direct buffers, such as file mappings, are decoded in place rather than copied to the heap first.
+ * Malformed input is rejected with a {@link MalformedInputException}, like {@link java.nio.file.Files#newBufferedReader}.
+ */
+final class Utf8Reader extends Reader {
+	private static final int STREAM_BUFFER_SIZE = 8192;
+
+	/** Where bytes come from when they are not all in {@link #bytes} already. At most one of these is set. */
+	private final InputStream stream;
+	private final ByteBuffer[] sources;
+	private ByteBuffer source;
+	private int sourceIndex;
+	/** The multibyte sequence being decoded from the source buffers, which may span two of them. */
+	private byte[] sequence;
+
+	private byte[] bytes;
+	private int pos;
+	private int limit;
+
+	/** A low surrogate that didn't fit into the caller's buffer on the last read. */
+	private char pendingLowSurrogate;
+
+	Utf8Reader(InputStream in) {
+		this.stream = in;
+		this.sources = null;
+		this.bytes = new byte[STREAM_BUFFER_SIZE];
+	}
+
+	Utf8Reader(byte[] in, int offset, int length) {
+		this.stream = null;
+		this.sources = null;
+		this.bytes = in;
+		this.pos = offset;
+		this.limit = offset + length;
+	}
+
+	/**
+	 * Reads the remaining bytes of {@code in}. The buffer is duplicated, so its position is left untouched
+	 * and several readers may safely share it.
+	 */
+	Utf8Reader(ByteBuffer in) {
+		this.stream = null;
+		if (in.hasArray()) {
+			this.sources = null;
+			this.bytes = in.array();
+			this.pos = in.arrayOffset() + in.position();
+			this.limit = in.arrayOffset() + in.limit();
+		} else {
+			this.sources = new ByteBuffer[] { in.duplicate() };
+			this.source = sources[0];
+			this.sequence = new byte[4];
+		}
+	}
+
+	/**
+	 * Reads the remaining bytes of each buffer in turn, as if they were one contiguous input. Multibyte
+	 * sequences may span two buffers. The buffers are used as-is, so they must not be shared.
+	 */
+	Utf8Reader(ByteBuffer[] in) {
+		this.stream = null;
+		this.sources = in;
+		this.source = in.length == 0 ? null : in[0];
+		this.sequence = new byte[4];
+	}
+
+	@Override
+	public int read(char[] chars, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		} else if (sources != null) {
+			return readBuffers(chars, offset, length);
+		}
+
+		int n = offset;
+		int end = offset + length;
+		if (pendingLowSurrogate != 0) {
+			chars[n++] = pendingLowSurrogate;
+			pendingLowSurrogate = 0;
+		}
+
+		byte[] bytes = this.bytes;
+		int p = pos;
+		int l = limit;
+		while (n < end) {
+			if (p == l) {
+				// Don't block for more bytes once we have something to hand back
+				if (n > offset) {
+					break;
+				}
+				pos = p;
+				boolean filled = fill(1);
+				bytes = this.bytes;
+				p = pos;
+				l = limit;
+				if (!filled) {
+					break;
+				}
+			}
+
+			// ASCII fast path
+			int asciiEnd = Math.min(l, p + (end - n));
+			while (p < asciiEnd && bytes[p] >= 0) {
+				chars[n++] = (char) bytes[p++];
+			}
+			if (p == asciiEnd) {
+				continue;
+			}
+
+			int b = bytes[p] & 0xFF;
+			int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+			if (p + needed > l) {
+				pos = p;
+				if (!fill(needed)) {
+					throw new MalformedInputException(l - p);
+				}
+				bytes = this.bytes;
+				p = pos;
+				l = limit;
+			}
+
+			int codePoint = decode(bytes, p, needed);
+			p += needed;
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				chars[n++] = (char) codePoint;
+			} else {
+				chars[n++] = Character.highSurrogate(codePoint);
+				if (n < end) {
+					chars[n++] = Character.lowSurrogate(codePoint);
+				} else {
+					pendingLowSurrogate = Character.lowSurrogate(codePoint);
+				}
+			}
+		}
+
+		pos = p;
+		return n == offset ? -1 : n - offset;
+	}
+
+	/**
+	 * Like {@link #read(char[], int, int)}, but decodes straight out of the source buffers.
+	 */
+	private int readBuffers(char[] chars, int offset, int length) throws IOException {
+		int n = offset;
+		int end = offset + length;
+		if (pendingLowSurrogate != 0) {
+			chars[n++] = pendingLowSurrogate;
+			pendingLowSurrogate = 0;
+		}
+
+		while (n < end && nextSource()) {
+			ByteBuffer source = this.source;
+			int p = source.position();
+			int l = source.limit();
+
+			// ASCII fast path
+			int asciiEnd = Math.min(l, p + (end - n));
+			while (p < asciiEnd) {
+				byte b = source.get(p);
+				if (b < 0) {
+					break;
+				}
+				chars[n++] = (char) b;
+				p++;
+			}
+			source.position(p);
+			if (p == asciiEnd) {
+				continue;
+			}
+
+			int b = source.get(p) & 0xFF;
+			int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+			byte[] sequence = this.sequence;
+			if (p + needed <= l) {
+				source.get(sequence, 0, needed);
+			} else {
+				// The sequence runs into the next buffer
+				for (int i = 0; i < needed; i++) {
+					if (!nextSource()) {
+						throw new MalformedInputException(i);
+					}
+					sequence[i] = this.source.get();
+				}
+			}
+			int codePoint = decode(sequence, 0, needed);
+
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				chars[n++] = (char) codePoint;
+			} else {
+				chars[n++] = Character.highSurrogate(codePoint);
+				if (n < end) {
+					chars[n++] = Character.lowSurrogate(codePoint);
+				} else {
+					pendingLowSurrogate = Character.lowSurrogate(codePoint);
+				}
+			}
+		}
+
+		return n == offset ? -1 : n - offset;
+	}
+
+	/**
+	 * Moves on to the next source buffer with bytes left, if the current one has none. Returns false once
+	 * all of them are exhausted.
+	 */
+	private boolean nextSource() {
+		while (source != null && !source.hasRemaining()) {
+			source = ++sourceIndex < sources.length ? sources[sourceIndex] : null;
+		}
+		return source != null;
+	}
+
+	/**
+	 * Decodes the multibyte sequence of {@code length} bytes at {@code p}, rejecting overlong forms,
+	 * surrogates and values past U+10FFFF.
+	 */
+	private static int decode(byte[] bytes, int p, int length) throws MalformedInputException {
+		int b0 = bytes[p] & 0xFF;
+		int b1 = bytes[p + 1] & 0xFF;
+		if ((b1 & 0xC0) != 0x80) {
+			throw new MalformedInputException(1);
+		}
+
+		if (length == 2) {
+			if (b0 < 0xC2) {
+				throw new MalformedInputException(1);
+			}
+			return ((b0 & 0x1F) << 6) | (b1 & 0x3F);
+		}
+
+		int b2 = bytes[p + 2] & 0xFF;
+		if ((b2 & 0xC0) != 0x80) {
+			throw new MalformedInputException(2);
+		}
+
+		if (length == 3) {
+			int codePoint = ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F);
+			if (codePoint < 0x800 || Character.isSurrogate((char) codePoint)) {
+				throw new MalformedInputException(3);
+			}
+			return codePoint;
+		}
+
+		int b3 = bytes[p + 3] & 0xFF;
+		if ((b3 & 0xC0) != 0x80 || b0 > 0xF4) {
+			throw new MalformedInputException(3);
+		}
+		int codePoint = ((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F);
+		if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT) {
+			throw new MalformedInputException(4);
+		}
+		return codePoint;
+	}
+
+	/**
+	 * Returns true once {@code limit - pos >= minimum}, compacting the buffer and reading more bytes from the
+	 * stream. Returns false if the input is exhausted first.
+	 */
+	private boolean fill(int minimum) throws IOException {
+		if (stream == null) {
+			return limit - pos >= minimum;
+		}
+
+		byte[] bytes = this.bytes;
+		int remaining = limit - pos;
+		System.arraycopy(bytes, pos, bytes, 0, remaining);
+		pos = 0;
+		limit = remaining;
+
+		while (limit < minimum) {
+			int read = stream.read(bytes, limit, bytes.length - limit);
+			if (read == -1) {
+				return false;
+			}
+			limit += read;
+		}
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (stream != null) {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2023 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.quiltmc.parsers.json;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Finds chars of interest a SIMD register at a time, using the incubating Vector API. This class fails to
+ * load unless the {@code jdk.incubator.vector} module is present, in which case {@link CharScanner} falls
+ * back to its scalar implementation.
+ */
+final class VectorCharScanner extends CharScanner {
+	/* Wider vectors than 256 bits overshoot the typical distance between structural chars. */
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED.vectorBitSize() > 256
+			? ShortVector.SPECIES_256
+			: ShortVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+	/** How many chars are checked one at a time before switching to vectors, as most runs are short. */
+	private static final int SCALAR_PREFIX = 8;
+
+	@Override
+	int skipStringContent(char[] chars, int p, int l) {
+		// Short strings are over before a vector would pay off
+		int head = super.skipStringContent(chars, p, Math.min(l, p + SCALAR_PREFIX));
+		if (head < p + SCALAR_PREFIX) {
+			return head;
+		}
+		p = head;
+		for (int bound = l - LANES; p <= bound; p += LANES) {
+			ShortVector v = ShortVector.fromCharArray(SPECIES, chars, p);
+			VectorMask<Short> stop = v.eq((short) '"')
+					.or(v.eq((short) '\''))
+					.or(v.eq((short) '\\'))
+					.or(v.eq((short) '\n'));
+			if (stop.anyTrue()) {
+				return p + stop.firstTrue();
+			}
+		}
+		return super.skipStringContent(chars, p, l);
+	}
+
+	@Override
+	int skipWhitespace(char[] chars, int p, int l) {
+		// Most runs of whitespace are short, so only pay for a vector when the first char is whitespace
+		if (p < l && chars[p] != ' ' && chars[p] != '\t' && chars[p] != '\r') {
+			return p;
+		}
+		for (int bound = l - LANES; p <= bound; p += LANES) {
+			ShortVector v = ShortVector.fromCharArray(SPECIES, chars, p);
+			VectorMask<Short> other = v.eq((short) ' ')
+					.or(v.eq((short) '\t'))
+					.or(v.eq((short) '\r'))
+					.not();
+			if (other.anyTrue()) {
+				return p + other.firstTrue();
+			}
+		}
+		return super.skipWhitespace(chars, p, l);
+	}
+
+	@Override
+	int skipToStructural(char[] chars, int p, int l) {
+		int head = super.skipToStructural(chars, p, Math.min(l, p + SCALAR_PREFIX));
+		if (head < p + SCALAR_PREFIX) {
+			return head;
+		}
+		p = head;
+		for (int bound = l - LANES; p <= bound; p += LANES) {
+			ShortVector v = ShortVector.fromCharArray(SPECIES, chars, p);
+			// The brackets differ from each other only in bit 5 ('[' | 0x20 == '{', ']' | 0x20 == '}')
+			ShortVector folded = v.or((short) 0x20);
+			VectorMask<Short> structural = folded.eq((short) '{')
+					.or(folded.eq((short) '}'))
+					.or(v.eq((short) '"'))
+					.or(v.eq((short) '\''))
+					.or(v.eq((short) '/'))
+					.or(v.eq((short) '\n'));
+			if (structural.anyTrue()) {
+				return p + structural.firstTrue();
+			}
+		}
+		return super.skipToStructural(chars, p, l);
+	}
+}